@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.benchmarks;
+
+/**
+ * The branches of QuadraticSolver.solve, each with an equation
+ * a x^2 + b xy + c y^2 + d x + e y + f = 0 per tier.
+ * <p>
+ * Unless noted otherwise, the equations come from the unit tests.
+ */
+public enum Branch {
+    LINEAR(
+            new long[]{0, 0, 0, 7, 9, -46}, // QuadraticSolverTest 26
+            new long[]{0, 0, 0, 570, 159, -3009}, // LinearSolverTest 3
+            new long[]{0, 0, 0, 9876543210L, 1234567891L, -4938271605L} // constructed
+    ),
+    PARABOLIC(
+            new long[]{1, 2, 1, 1, 1, -6}, // QuadraticSolverTest 7
+            new long[]{8, -24, 18, 5, 7, 16}, // QuadraticSolverTest 20
+            new long[]{1, 2, 1, 12345, -23456, 80181} // constructed, |u| = 143204, (3, 5) is a solution
+    ),
+    SQUARE_DISCRIMINANT(
+            new long[]{2, 7, 6, 5, 7, -27}, // QuadraticSolverTest 8
+            new long[]{0, 3, 2, -4, -3, -12}, // QuadraticSolverTest 3
+            new long[]{10, 1, -21, 12345, -6789, 73233000} // constructed, D = 29^2, (1000, 2000) is a solution
+    ),
+    TRIVIAL(
+            new long[]{1, 0, -2, -2, 4, -1}, // constructed, (x - 1)^2 - 2(y - 1)^2 = 0
+            new long[]{2, 8, -1, -4, 10, -7}, // QuadraticSolverTest 12
+            new long[]{1, 0, -7, -246912, 9160494, -2981710413351L} // constructed, (x - 123456)^2 - 7(y - 654321)^2 = 0
+    ),
+    ELLIPTICAL(
+            new long[]{-5, 6, -2, 0, 0, 40}, // QuadraticSolverTest 33
+            new long[]{2, 3, 5, 0, 0, -3352}, // QuadraticSolverTest 10
+            new long[]{3, 2, 5, -1234, 5678, 1158600} // constructed, D = -56, (1000, -700) is a solution
+    ),
+    HYPERBOLIC(
+            new long[]{1, 2, -4, 1, 2, -2}, // HyperbolicSolverTest 39
+            new long[]{1, 0, -15, 0, 0, -61}, // HyperbolicSolverTest 1
+            new long[]{1, 3, -7, 1234, -4321, 6763500} // constructed, D = 37, (2000, 1500) is a solution
+    );
+
+    private final long[] small, medium, large;
+
+    private Branch(long[] small, long[] medium, long[] large) {
+        this.small = small;
+        this.medium = medium;
+        this.large = large;
+    }
+
+    /**
+     * Returns the coefficients {a, b, c, d, e, f} of the equation for the given tier.
+     *
+     * @param tier
+     * @return
+     */
+    public long[] coefficients(Tier tier) {
+        switch (tier) {
+            case SMALL -> {
+                return small;
+            }
+            case MEDIUM -> {
+                return medium;
+            }
+            default -> {
+                return large;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.benchmarks;
+
+import io.github.mangara.diophantine.QuadraticSolver;
+import io.github.mangara.diophantine.XYPair;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures QuadraticSolver.solve for every branch and tier, both up to the
+ * first solution and up to the first n solutions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuadraticSolverBenchmark {
+
+    @Param
+    public Branch branch;
+
+    @Param
+    public Tier tier;
+
+    @Param({"10"})
+    public int n;
+
+    private BigInteger a, b, c, d, e, f;
+
+    @Setup
+    public void setup() {
+        long[] coefficients = branch.coefficients(tier);
+        a = BigInteger.valueOf(coefficients[0]);
+        b = BigInteger.valueOf(coefficients[1]);
+        c = BigInteger.valueOf(coefficients[2]);
+        d = BigInteger.valueOf(coefficients[3]);
+        e = BigInteger.valueOf(coefficients[4]);
+        f = BigInteger.valueOf(coefficients[5]);
+    }
+
+    @Benchmark
+    public XYPair firstSolution() {
+        return QuadraticSolver.solve(a, b, c, d, e, f).next();
+    }
+
+    @Benchmark
+    public void firstNSolutions(Blackhole bh) {
+        Iterator<XYPair> solutions = QuadraticSolver.solve(a, b, c, d, e, f);
+
+        // Elliptical and square discriminant equations can have fewer than n solutions
+        for (int i = 0; i < n && solutions.hasNext(); i++) {
+            bh.consume(solutions.next());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.benchmarks.utils;
+
+import io.github.mangara.diophantine.XYPair;
+import io.github.mangara.diophantine.utils.ChineseRemainder;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChineseRemainderBenchmark {
+
+    /**
+     * The number of bits of each modulus.
+     */
+    @Param({"16", "32", "48"})
+    public int bits;
+
+    @Param({"2", "8", "32"})
+    public int congruences;
+
+    private List<XYPair> remainders;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(bits * 31L + congruences);
+        List<BigInteger> moduli = new ArrayList<>();
+        remainders = new ArrayList<>();
+
+        while (moduli.size() < congruences) {
+            BigInteger n = BigInteger.probablePrime(bits, random);
+
+            if (!moduli.contains(n)) {
+                moduli.add(n);
+                remainders.add(new XYPair(new BigInteger(bits, random).mod(n), n));
+            }
+        }
+    }
+
+    @Benchmark
+    public BigInteger solveSystem() {
+        return ChineseRemainder.solveSystem(remainders);
+    }
+}
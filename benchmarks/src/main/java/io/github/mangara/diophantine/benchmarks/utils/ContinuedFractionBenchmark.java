@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.benchmarks.utils;
+
+import io.github.mangara.diophantine.XYPair;
+import io.github.mangara.diophantine.utils.ContinuedFraction;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the continued fraction of (1 + sqrt(D))/2 and its convergent at the
+ * end of the second period, which is what PellsSolver computes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContinuedFractionBenchmark {
+
+    /**
+     * The smallest D = 1 (mod 4) for which the period of (1 + sqrt(D))/2 is at
+     * least 10, 100, and 1000, respectively. PellsSolver only expands this
+     * expression for such D.
+     */
+    @Param({"129", "4201", "229681"})
+    public long D;
+
+    private BigInteger bigD;
+    private ContinuedFraction cf;
+    private int convergentIndex;
+
+    @Setup
+    public void setup() {
+        bigD = BigInteger.valueOf(D);
+        cf = ContinuedFraction.ofExpression(BigInteger.ONE, bigD, BigInteger.TWO);
+        convergentIndex = 2 * cf.getPeriod() - 1;
+    }
+
+    @Benchmark
+    public ContinuedFraction ofExpression() {
+        return ContinuedFraction.ofExpression(BigInteger.ONE, bigD, BigInteger.TWO);
+    }
+
+    @Benchmark
+    public XYPair convergent() {
+        return cf.convergent(convergentIndex);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.benchmarks.utils;
+
+import io.github.mangara.diophantine.utils.Divisors;
+import io.github.mangara.diophantine.utils.Primes;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DivisorsBenchmark {
+
+    @Param({"20", "32", "48"})
+    public int bits;
+
+    @Param
+    public NumberKind kind;
+
+    private long[] numbers;
+    private int index;
+
+    @Setup
+    public void setup() {
+        numbers = kind.generate(bits, 1024);
+
+        // Grow the sieve up front, so it doesn't count towards the first measurement
+        for (long n : numbers) {
+            Primes.getPrimeFactors(n);
+        }
+    }
+
+    @Benchmark
+    public List<Long> getSquareDivisors() {
+        index = (index + 1) % numbers.length;
+        return Divisors.getSquareDivisors(numbers[index]);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.benchmarks.utils;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * The shape of the numbers fed to the factorization benchmarks.
+ */
+public enum NumberKind {
+    /**
+     * A product of primes below 100.
+     */
+    SMOOTH {
+        @Override
+        public long generate(int bits, Random random) {
+            long n = 1;
+
+            while (64 - Long.numberOfLeadingZeros(n) < bits) {
+                long p = SMALL_PRIMES[random.nextInt(SMALL_PRIMES.length)];
+
+                if (64 - Long.numberOfLeadingZeros(n * p) > bits) {
+                    break;
+                }
+
+                n *= p;
+            }
+
+            return n;
+        }
+    },
+    /**
+     * A product of two primes of roughly equal size, the worst case for trial division.
+     */
+    SEMIPRIME {
+        @Override
+        public long generate(int bits, Random random) {
+            long p = BigInteger.probablePrime(bits / 2, random).longValueExact();
+            long q = BigInteger.probablePrime(bits - bits / 2, random).longValueExact();
+            return p * q;
+        }
+    };
+
+    private static final long[] SMALL_PRIMES = {
+        2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79, 83, 89, 97
+    };
+
+    /**
+     * Returns a positive number of this kind with at most the given number of
+     * bits.
+     *
+     * @param bits
+     * @param random
+     * @return
+     */
+    public abstract long generate(int bits, Random random);
+
+    /**
+     * Returns count numbers of this kind, generated from a fixed seed so that
+     * all runs measure the same inputs.
+     *
+     * @param bits
+     * @param count
+     * @return
+     */
+    public long[] generate(int bits, int count) {
+        Random random = new Random(bits * 31L + ordinal());
+        long[] numbers = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            numbers[i] = generate(bits, random);
+        }
+
+        return numbers;
+    }
+}
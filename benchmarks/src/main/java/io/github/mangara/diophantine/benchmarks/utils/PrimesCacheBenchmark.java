@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.benchmarks.utils;
+
+import io.github.mangara.diophantine.utils.Primes;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures factorization cache hits from many threads at once, to show how
+ * much they contend on the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class PrimesCacheBenchmark {
+
+    @Param({"32", "48"})
+    public int bits;
+
+    private long[] numbers;
+
+    @Setup
+    public void setup() {
+        // Few enough numbers that they all stay cached
+        numbers = NumberKind.SEMIPRIME.generate(bits, 256);
+
+        for (long n : numbers) {
+            Primes.getPrimeFactors(n);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadIndex {
+
+        int index;
+    }
+
+    @Benchmark
+    public List<Long> getCachedPrimeFactors(ThreadIndex thread) {
+        thread.index = (thread.index + 1) % numbers.length;
+        return Primes.getPrimeFactors(numbers[thread.index]);
+    }
+}
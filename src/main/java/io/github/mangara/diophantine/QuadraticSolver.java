@@ -15,6 +15,8 @@
  */
 package io.github.mangara.diophantine;
 
+import io.github.mangara.diophantine.instrumentation.Instrumentation;
+import io.github.mangara.diophantine.instrumentation.Phase;
 import io.github.mangara.diophantine.quadratic.SquareDiscriminantSolver;
 import io.github.mangara.diophantine.quadratic.ParabolicSolver;
 import io.github.mangara.diophantine.quadratic.EllipticalSolver;
@@ -64,18 +66,46 @@ public class QuadraticSolver {
             return LinearSolver.solve(d, e, f);
         }
 
+        long start = Instrumentation.start();
         BigInteger D = Utils.discriminant(a, b, c);
+        EquationType type = classify(a, b, c, d, e, f, D);
+        Instrumentation.phaseCompleted(Phase.CLASSIFICATION, start, D.bitLength());
 
+        switch (type) {
+            case PARABOLIC -> {
+                return ParabolicSolver.solve(a, b, c, d, e, f);
+            }
+            case SQUARE_DISCRIMINANT -> {
+                return SquareDiscriminantSolver.solve(a, b, c, d, e, f);
+            }
+            case TRIVIAL -> {
+                return solveTrivialCase(a, b, c, d, e, f, D);
+            }
+            case ELLIPTICAL -> {
+                return EllipticalSolver.solve(a, b, c, d, e, f);
+            }
+            default -> {
+                return HyperbolicSolver.solve(a, b, c, d, e, f);
+            }
+        }
+    }
+
+    private enum EquationType {
+        PARABOLIC, SQUARE_DISCRIMINANT, TRIVIAL, ELLIPTICAL, HYPERBOLIC
+    }
+
+    // Pre: not all of a, b, and c are zero
+    private static EquationType classify(BigInteger a, BigInteger b, BigInteger c, BigInteger d, BigInteger e, BigInteger f, BigInteger D) {
         if (D.signum() == 0) {
-            return ParabolicSolver.solve(a, b, c, d, e, f);
+            return EquationType.PARABOLIC;
         } else if (Utils.isSquare(D)) {
-            return SquareDiscriminantSolver.solve(a, b, c, d, e, f);
+            return EquationType.SQUARE_DISCRIMINANT;
         } else if (Utils.legendreConstant(a, b, c, d, e, f, D).signum() == 0) {
-            return solveTrivialCase(a, b, c, d, e, f, D);
+            return EquationType.TRIVIAL;
         } else if (D.signum() < 0) {
-            return EllipticalSolver.solve(a, b, c, d, e, f);
+            return EquationType.ELLIPTICAL;
         } else {
-            return HyperbolicSolver.solve(a, b, c, d, e, f);
+            return EquationType.HYPERBOLIC;
         }
     }
 
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when a unary quadratic congruence is solved modulo a prime power.
+ */
+@Name("io.github.mangara.diophantine.Congruence")
+@Label("Congruence")
+@Category("Diophantine")
+@Description("Solves a x^2 + b x + c = 0 (mod p^k) by lifting its roots modulo p")
+public class CongruenceEvent extends Event {
+
+    @Label("Modulus")
+    public String modulus;
+
+    @Label("Modulus Bits")
+    public int modulusBits;
+
+    @Label("Roots")
+    public int roots;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when the continued fraction of (a + sqrt(b))/c is computed.
+ */
+@Name("io.github.mangara.diophantine.ContinuedFraction")
+@Label("Continued Fraction")
+@Category("Diophantine")
+@Description("Computes the continued fraction of (a + sqrt(b))/c")
+public class ContinuedFractionEvent extends Event {
+
+    @Label("b")
+    public String b;
+
+    @Label("b Bits")
+    public int bBits;
+
+    @Label("Coefficients")
+    @Description("The number of coefficients, including the period")
+    public int coefficients;
+
+    @Label("Period")
+    @Description("The number of repeating coefficients, or 0 if the continued fraction is finite")
+    public int period;
+}
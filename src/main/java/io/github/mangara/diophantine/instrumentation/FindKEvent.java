@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when HyperbolicSolver searches for the power k of the least solution
+ * to x^2 - D y^2 = 4 of the reduced equation that matches the original one.
+ */
+@Name("io.github.mangara.diophantine.FindK")
+@Label("Find Pell's Four Power")
+@Category("Diophantine")
+@Description("Finds k such that the least Pell's four solution of the reduced equation to the power k matches the original equation")
+public class FindKEvent extends Event {
+
+    @Label("D")
+    @Description("The discriminant of the original equation")
+    public String D;
+
+    @Label("Reduced D")
+    @Description("The discriminant of the reduced equation")
+    public String reducedD;
+
+    @Label("k")
+    public int k;
+}
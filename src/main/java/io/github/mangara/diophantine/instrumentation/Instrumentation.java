@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.instrumentation;
+
+import java.math.BigInteger;
+
+/**
+ * Forwards measurements from the solvers to the installed
+ * {@link SolveListener}.
+ * <p>
+ * By default no listener is installed, and each measurement costs a single
+ * field read. In particular, the clock is only read when a listener is
+ * installed.
+ */
+public class Instrumentation {
+
+    private static final SolveListener NO_LISTENER = new SolveListener() {};
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private static volatile SolveListener listener = NO_LISTENER;
+
+    /**
+     * Installs a listener that receives measurements from all solvers, on all
+     * threads. Passing null removes the current listener.
+     *
+     * @param newListener
+     */
+    public static void setListener(SolveListener newListener) {
+        listener = newListener == null ? NO_LISTENER : newListener;
+    }
+
+    /**
+     * Returns whether a listener is installed.
+     *
+     * @return
+     */
+    public static boolean isEnabled() {
+        return listener != NO_LISTENER;
+    }
+
+    /**
+     * Marks the start of a phase. The result must be passed to
+     * {@link #phaseCompleted(Phase, long, int)} at the end of the phase.
+     *
+     * @return
+     */
+    public static long start() {
+        return listener == NO_LISTENER ? NOT_STARTED : System.nanoTime();
+    }
+
+    /**
+     * Reports that a phase has been completed.
+     *
+     * @param phase
+     * @param start the value returned by {@link #start()} at the start of this
+     * phase
+     * @param bitLength the bit length of the main input of this phase
+     */
+    public static void phaseCompleted(Phase phase, long start, int bitLength) {
+        SolveListener current = listener;
+
+        if (current != NO_LISTENER && start != NOT_STARTED) {
+            current.phaseCompleted(phase, System.nanoTime() - start, bitLength);
+        }
+    }
+
+    /**
+     * Reports that a quadratic congruence modulo n has been solved.
+     *
+     * @param n
+     * @param roots
+     */
+    public static void congruenceSolved(BigInteger n, int roots) {
+        SolveListener current = listener;
+
+        if (current != NO_LISTENER) {
+            current.congruenceSolved(n, roots);
+        }
+    }
+
+    /**
+     * Reports that the continued fraction of (a + sqrt(b))/c has been
+     * computed.
+     *
+     * @param b
+     * @param period
+     */
+    public static void continuedFractionExpanded(BigInteger b, int period) {
+        SolveListener current = listener;
+
+        if (current != NO_LISTENER) {
+            current.continuedFractionExpanded(b, period);
+        }
+    }
+
+    /**
+     * Reports that divisors of n have been enumerated.
+     *
+     * @param n
+     * @param divisors
+     */
+    public static void divisorsEnumerated(long n, int divisors) {
+        SolveListener current = listener;
+
+        if (current != NO_LISTENER) {
+            current.divisorsEnumerated(BigInteger.valueOf(n), divisors);
+        }
+    }
+
+    /**
+     * Reports that divisors of n have been enumerated.
+     *
+     * @param n
+     * @param divisors
+     */
+    public static void divisorsEnumerated(BigInteger n, int divisors) {
+        SolveListener current = listener;
+
+        if (current != NO_LISTENER) {
+            current.divisorsEnumerated(n, divisors);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when the least positive solution to x^2 - D y^2 = 4 is computed.
+ */
+@Name("io.github.mangara.diophantine.PellsFour")
+@Label("Least Pell's Four Solution")
+@Category("Diophantine")
+@Description("Finds the least positive solution to x^2 - D y^2 = 4")
+public class PellsFourEvent extends Event {
+
+    @Label("D")
+    public String D;
+
+    @Label("D Bits")
+    public int DBits;
+
+    @Label("Solution Bits")
+    @Description("The bit length of x in the least positive solution")
+    public int solutionBits;
+}
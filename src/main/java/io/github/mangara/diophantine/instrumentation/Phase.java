@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.instrumentation;
+
+/**
+ * The phases of a solve that are reported to a {@link SolveListener}.
+ * <p>
+ * Phases are timed exclusively, except that {@link #REDUCTION} factors f and
+ * so contains a {@link #FACTORIZATION} phase. Summing all phase durations
+ * counts that factorization twice.
+ */
+public enum Phase {
+    /**
+     * Computing the discriminant and Legendre constant to pick a solver.
+     */
+    CLASSIFICATION,
+    /**
+     * Factoring a number into primes.
+     */
+    FACTORIZATION,
+    /**
+     * Solving a unary quadratic congruence a x^2 + b x + c = 0 (mod n), not
+     * including factoring n.
+     */
+    CONGRUENCE,
+    /**
+     * Expanding (a + sqrt(b))/c into a continued fraction.
+     */
+    CONTINUED_FRACTION,
+    /**
+     * Finding a transformation into an equation with gcd(a, f) = 1. This
+     * includes factoring f, which is also reported as a
+     * {@link #FACTORIZATION} phase.
+     */
+    REDUCTION,
+    /**
+     * Transforming the solutions of a restricted hyperbolic equation back
+     * into solutions of the original equation, not including solving the
+     * Pell equation that this needs.
+     */
+    UNTRANSFORM
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when the sieve of Eratosthenes in Primes grows.
+ */
+@Name("io.github.mangara.diophantine.Sieve")
+@Label("Sieve Growth")
+@Category("Diophantine")
+@Description("The sieve of Eratosthenes grows to factor larger numbers")
+public class SieveEvent extends Event {
+
+    @Label("Upper Bound")
+    @Description("The largest number that can be factored after growing")
+    public long upperbound;
+
+    @Label("Sieve Size")
+    @Description("The largest number that was sieved")
+    public int sieveSize;
+
+    @Label("Primes")
+    @Description("The number of known primes after growing")
+    public int primes;
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.instrumentation;
+
+import java.math.BigInteger;
+
+/**
+ * Receives measurements from the solvers while they are running.
+ * <p>
+ * All methods do nothing by default, so implementations only need to override
+ * the measurements they are interested in. Listeners are called on the solving
+ * thread, so they should be fast and, if solvers are used from multiple
+ * threads, thread-safe.
+ *
+ * @see Instrumentation#setListener(SolveListener)
+ */
+public interface SolveListener {
+
+    /**
+     * Called when a phase is completed. Phases can nest, see {@link Phase}.
+     *
+     * @param phase
+     * @param nanos the wall time spent in this phase, in nanoseconds
+     * @param bitLength the bit length of the main input of this phase, such as
+     * the number being factored or the modulus of a congruence
+     */
+    default void phaseCompleted(Phase phase, long nanos, int bitLength) {
+    }
+
+    /**
+     * Called when a quadratic congruence modulo n is solved.
+     *
+     * @param n
+     * @param roots the number of solutions {@literal 0 <= x < n}
+     */
+    default void congruenceSolved(BigInteger n, int roots) {
+    }
+
+    /**
+     * Called when the continued fraction of (a + sqrt(b))/c is computed.
+     *
+     * @param b
+     * @param period the number of repeating coefficients, or 0 if the
+     * continued fraction is finite
+     */
+    default void continuedFractionExpanded(BigInteger b, int period) {
+    }
+
+    /**
+     * Called when divisors of n are enumerated. For lazy iterators over the
+     * divisors, this is called once the iterator is exhausted, and not at all
+     * if the caller stops early.
+     *
+     * @param n
+     * @param divisors the number of divisors returned
+     */
+    default void divisorsEnumerated(BigInteger n, int divisors) {
+    }
+}
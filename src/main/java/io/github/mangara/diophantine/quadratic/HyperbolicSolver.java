@@ -17,6 +17,9 @@ package io.github.mangara.diophantine.quadratic;
 
 import io.github.mangara.diophantine.Utils;
 import io.github.mangara.diophantine.XYPair;
+import io.github.mangara.diophantine.instrumentation.FindKEvent;
+import io.github.mangara.diophantine.instrumentation.Instrumentation;
+import io.github.mangara.diophantine.instrumentation.Phase;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -102,6 +105,8 @@ public class HyperbolicSolver {
 
     private static List<XYPair> untransformSolutions(List<XYPair> representativeSolutions, BigInteger D, RestrictedEquation eq, FloridaTransform ft) {
         XYPair uv1 = PellsSolver.leastPositivePellsFourSolution(eq.D);
+        // Start after solving Pell's equation, so that its continued fraction isn't counted twice
+        long start = Instrumentation.start();
         BigInteger minU = uv1.x;
         BigInteger minV = uv1.y;
 
@@ -129,10 +134,14 @@ public class HyperbolicSolver {
             }
         }
 
+        Instrumentation.phaseCompleted(Phase.UNTRANSFORM, start, eq.D.bitLength());
         return solutions;
     }
 
     private static int findK(BigInteger minU, BigInteger minV, BigInteger D, BigInteger D2, BigInteger phi2, BigInteger psi2) {
+        FindKEvent event = new FindKEvent();
+        event.begin();
+
         // Find k such that v^2 = mu^k
         BigInteger u = minU;
         BigInteger v = minV;
@@ -152,6 +161,13 @@ public class HyperbolicSolver {
             k++;
         }
 
+        if (event.shouldCommit()) {
+            event.D = D.toString();
+            event.reducedD = D2.toString();
+            event.k = k;
+            event.commit();
+        }
+
         return k;
     }
 
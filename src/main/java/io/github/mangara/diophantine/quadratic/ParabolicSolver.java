@@ -20,6 +20,7 @@ import io.github.mangara.diophantine.iterators.MergedIterator;
 import io.github.mangara.diophantine.XYPair;
 import io.github.mangara.diophantine.iterators.IntegerIterator;
 import io.github.mangara.diophantine.iterators.MappingIterator;
+import io.github.mangara.diophantine.utils.Primes;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -132,15 +133,20 @@ public class ParabolicSolver {
         BigInteger u = computeU(a, b, d, e);
         BigInteger v = computeV(a, d, f);
         
-        List<BigInteger> SqrtVModU = UnaryCongruenceSolver.solve(BigInteger.ONE, BigInteger.ZERO, v.negate(), u.abs());
+        // Factor |u| once for both counting and solving
+        List<BigInteger> primes = Primes.getDistinctPrimeFactors(u.abs());
         
-        if (SqrtVModU.isEmpty()) {
+        if (UnaryCongruenceSolver.countRoots(BigInteger.ONE, BigInteger.ZERO, v.negate(), u.abs(), primes).signum() == 0) {
             return Collections.emptyIterator();
         }
         
+        Iterator<BigInteger> SqrtVModU = UnaryCongruenceSolver.solutionIterator(BigInteger.ONE, BigInteger.ZERO, v.negate(), u.abs(), primes);
+        
         List<Iterator<XYPair>> familyIterators = new ArrayList<>();
         
-        for (BigInteger Ti : SqrtVModU) {
+        while (SqrtVModU.hasNext()) {
+            BigInteger Ti = SqrtVModU.next();
+            
             // t + d = T_i + uk satisfies (t + d)^2 = v (mod |u|) for every integer k
             // Substituting t + d = Ti + uk into (t + d)^2 = uy + v and solving for y yields
             //  y = (Ti^2 - v) / u + 2Tik + uk^2 = r + sk + uk^2
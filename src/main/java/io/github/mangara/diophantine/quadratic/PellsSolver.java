@@ -17,6 +17,7 @@ package io.github.mangara.diophantine.quadratic;
 
 import io.github.mangara.diophantine.Utils;
 import io.github.mangara.diophantine.XYPair;
+import io.github.mangara.diophantine.instrumentation.PellsFourEvent;
 import io.github.mangara.diophantine.utils.ContinuedFraction;
 import java.math.BigInteger;
 import java.util.Iterator;
@@ -53,6 +54,23 @@ public class PellsSolver {
             throw new IllegalArgumentException("This method only supports non-squares.");
         }
 
+        PellsFourEvent event = new PellsFourEvent();
+        event.begin();
+
+        XYPair solution = computeLeastPositivePellsFourSolution(D);
+
+        if (event.shouldCommit()) {
+            event.D = D.toString();
+            event.DBits = D.bitLength();
+            event.solutionBits = solution.x.bitLength();
+            event.commit();
+        }
+
+        return solution;
+    }
+
+    // Pre: D is not a perfect square
+    private static XYPair computeLeastPositivePellsFourSolution(BigInteger D) {
         switch (D.mod(BigInteger.valueOf(4)).intValue()) {
             case 1 -> {
                 // The solution is part of the convergents of (1 + sqrt(D))/2
@@ -18,6 +18,8 @@ package io.github.mangara.diophantine.quadratic;
 import io.github.mangara.diophantine.utils.ChineseRemainder;
 import io.github.mangara.diophantine.utils.ExtendedEuclidean;
 import io.github.mangara.diophantine.XYPair;
+import io.github.mangara.diophantine.instrumentation.Instrumentation;
+import io.github.mangara.diophantine.instrumentation.Phase;
 import io.github.mangara.diophantine.utils.Primes;
 import java.math.BigInteger;
 import java.util.ArrayList;
@@ -37,6 +39,8 @@ public class Reduction {
      * @return
      */
     public static Reduction forEquation(RestrictedEquation eq) {
+        long start = Instrumentation.start();
+
         // Find a unimodular transform into a form with GCD(a, f) = 1
         // 1. Find relatively prime integers alpha and gamma such that a alpha^2 + b alpha gamma + c gamma^2 = A with gcd(A, f) = 1
         XYPair alphaGamma = findAlphaGamma(eq);
@@ -46,17 +50,16 @@ public class Reduction {
         XYPair betaDelta = findBetaDelta(alpha, gamma);
         BigInteger beta = betaDelta.x, delta = betaDelta.y;
 
+        Instrumentation.phaseCompleted(Phase.REDUCTION, start, eq.absF.bitLength());
         return new Reduction(alpha, beta, gamma, delta);
     }
 
     private static XYPair findAlphaGamma(RestrictedEquation eq) {
-        List<Long> distinctFactors = Primes.getDistinctPrimeFactors(eq.absF.longValueExact());
+        List<BigInteger> distinctFactors = Primes.getDistinctPrimeFactors(eq.absF);
         List<XYPair> xEquations = new ArrayList<>();
         List<XYPair> yEquations = new ArrayList<>();
 
-        for (Long p : distinctFactors) {
-            BigInteger factor = BigInteger.valueOf(p);
-
+        for (BigInteger factor : distinctFactors) {
             if (eq.a.mod(factor).signum() == 0) {
                 if (eq.c.mod(factor).signum() == 0) {
                     if (eq.b.mod(factor).signum() == 0) {
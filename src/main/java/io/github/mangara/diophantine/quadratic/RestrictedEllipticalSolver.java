@@ -19,13 +19,13 @@ import io.github.mangara.diophantine.Utils;
 import io.github.mangara.diophantine.XYPair;
 import io.github.mangara.diophantine.utils.ContinuedFraction;
 import io.github.mangara.diophantine.utils.Divisors;
+import io.github.mangara.diophantine.utils.Primes;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Solves some elliptical quadratic Diophantine equations in two variables.
@@ -132,16 +132,24 @@ public class RestrictedEllipticalSolver {
 
     // Pre: a > 0, n > 0, gcd(a, n) = 1, D = b^2 - 4ac < 0 and not a perfect square
     private static List<XYPair> solveReduced(RestrictedEquation eq) {
-        long n = eq.f.negate().longValueExact();
+        BigInteger n = eq.f.negate();
         // If a x^2 + b xy + c y^2 = n with gcd(x, y) = h, n must be divisible by h^2.
         // So to find all such (x, y), we can solve a X^2 + b XY + c Y^2 + n/h^2 = 0 for relatively prime (X, Y).
         // We then obtain (x, y) = (hX, hY).
         List<XYPair> solutions = new ArrayList<>();
+        List<BigInteger> primes = Primes.getDistinctPrimeFactors(n);
         
-        for (Long divisor : Divisors.getSquareDivisors(n)) {
-            List<XYPair> primitive = getPrimtiveSolutions(eq.a, eq.b, eq.c, BigInteger.valueOf(n / divisor));
+        for (BigInteger divisor : Divisors.getSquareDivisors(n)) {
+            BigInteger m = n.divide(divisor);
             
-            BigInteger factor = BigInteger.valueOf(divisor).sqrt();
+            // Without roots of a t^2 + b t + c modulo n/h^2 there are no primitive solutions
+            if (UnaryCongruenceSolver.countRoots(eq.a, eq.b, eq.c, m, primes).signum() == 0) {
+                continue;
+            }
+            
+            List<XYPair> primitive = getPrimtiveSolutions(eq.a, eq.b, eq.c, m, primes);
+            
+            BigInteger factor = divisor.sqrt();
             for (XYPair sol : primitive) {
                 solutions.add(new XYPair(sol.x.multiply(factor), sol.y.multiply(factor)));
             }
@@ -150,20 +158,25 @@ public class RestrictedEllipticalSolver {
         return solutions;
     }
 
-    private static List<XYPair> getPrimtiveSolutions(BigInteger a, BigInteger b, BigInteger c, BigInteger n) {
+    // Pre: primes contains every prime divisor of n
+    private static List<XYPair> getPrimtiveSolutions(BigInteger a, BigInteger b, BigInteger c, BigInteger n, List<BigInteger> primes) {
         List<XYPair> solutions = new ArrayList<>();
         
         // Solve at^2 + bt + c = 0 (mod n) for -n/2 < t <= n/2
-        List<BigInteger> congruenceSolutions = UnaryCongruenceSolver.solve(a, b, c, n);
-        List<BigInteger> thetas = congruenceSolutions.stream()
-                .map(t -> t.compareTo(n.divide(BigInteger.TWO)) > 0 ? t.subtract(n) : t)
-                .collect(Collectors.toList());
+        Iterator<BigInteger> congruenceSolutions = UnaryCongruenceSolver.solutionIterator(a, b, c, n, primes);
+        BigInteger halfN = n.divide(BigInteger.TWO);
         
         BigInteger D = Utils.discriminant(a, b, c);
         BigInteger minusThree = BigInteger.valueOf(-3);
         BigInteger minusFour = BigInteger.valueOf(-4);
         
-        for (BigInteger t : thetas) {
+        while (congruenceSolutions.hasNext()) {
+            BigInteger t = congruenceSolutions.next();
+            
+            if (t.compareTo(halfN) > 0) {
+                t = t.subtract(n);
+            }
+            
             // By substituting x = tu - ny, we obtain
             //  Pu^2 + Quy + Ry^2 = 1, with
             
@@ -201,7 +214,7 @@ public class RestrictedEllipticalSolver {
                 BigInteger bound = P.multiply(minusFour).divide(D).sqrt(); // sqrt(4P/-D)
                 
                 // convergents of -Q / 2P
-                List<XYPair> convergents = ContinuedFraction.ofFraction(Q.negate().longValueExact(), P.multiply(BigInteger.TWO).longValueExact()).getConvergents();
+                List<XYPair> convergents = ContinuedFraction.ofFraction(Q.negate(), P.multiply(BigInteger.TWO)).getConvergents();
                 
                 for (int i = 0; i < convergents.size(); i++) {
                     XYPair convergent = convergents.get(i);
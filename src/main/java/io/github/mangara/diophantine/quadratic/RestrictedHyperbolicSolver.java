@@ -19,6 +19,7 @@ import io.github.mangara.diophantine.Utils;
 import io.github.mangara.diophantine.XYPair;
 import io.github.mangara.diophantine.utils.ContinuedFraction;
 import io.github.mangara.diophantine.utils.Divisors;
+import io.github.mangara.diophantine.utils.Primes;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -108,13 +109,19 @@ public class RestrictedHyperbolicSolver {
         // If x and y share a factor d, then -f = a x^2 + b xy + c y^2 is divisible by d^2
         // So we find all square factors of f (including 1) and solve a(x/d)^2 + b(x/d)(y/d) + c(y/d)^2 = -(f/d^2) in relatively prime x/d and y/d
         List<XYPair> solutions = new ArrayList<>();
-        List<Long> squareDivisors = Divisors.getSquareDivisors(eq.absF.longValueExact());
+        List<BigInteger> squareDivisors = Divisors.getSquareDivisors(eq.absF);
+        List<BigInteger> primes = Primes.getDistinctPrimeFactors(eq.absF);
         
-        for (Long div : squareDivisors) {
-            BigInteger divisor = BigInteger.valueOf(div);
-            BigInteger factor = divisor.sqrt();
+        for (BigInteger divisor : squareDivisors) {
+            BigInteger reducedF = eq.f.divide(divisor);
             
-            Set<XYPair> primitiveSolutions = getPrimitiveSolutions(eq.a, eq.b, eq.c, eq.f.divide(divisor), eq.D);
+            // Without roots of a t^2 + b t + c modulo |f/d^2| there are no primitive solutions
+            if (UnaryCongruenceSolver.countRoots(eq.a, eq.b, eq.c, reducedF.abs(), primes).signum() == 0) {
+                continue;
+            }
+            
+            BigInteger factor = divisor.sqrt();
+            Set<XYPair> primitiveSolutions = getPrimitiveSolutions(eq.a, eq.b, eq.c, reducedF, eq.D, primes);
             
             for (XYPair sol : primitiveSolutions) {
                 solutions.add(new XYPair(sol.x.multiply(factor), sol.y.multiply(factor)));
@@ -124,12 +131,13 @@ public class RestrictedHyperbolicSolver {
         return solutions;
     }
 
-    // Pre: D = b^2 - 4ac > 0, D not a perfect square, gcd(a, b, c) = 1, gcd(a, f) = 1
-    private static Set<XYPair> getPrimitiveSolutions(BigInteger a, BigInteger b, BigInteger c, BigInteger f, BigInteger D) {
-        List<BigInteger> thetas = UnaryCongruenceSolver.solve(a, b, c, f.abs());
+    // Pre: D = b^2 - 4ac > 0, D not a perfect square, gcd(a, b, c) = 1, gcd(a, f) = 1, primes contains every prime divisor of f
+    private static Set<XYPair> getPrimitiveSolutions(BigInteger a, BigInteger b, BigInteger c, BigInteger f, BigInteger D, List<BigInteger> primes) {
+        Iterator<BigInteger> thetas = UnaryCongruenceSolver.solutionIterator(a, b, c, f.abs(), primes);
         Set<XYPair> primitiveSolutions = new HashSet<>();
         
-        for (BigInteger theta : thetas) {
+        while (thetas.hasNext()) {
+            BigInteger theta = thetas.next();
             getPrimitiveSolution(a, b, c, f, D, theta).ifPresent(sol -> primitiveSolutions.add(sol));
         }
         
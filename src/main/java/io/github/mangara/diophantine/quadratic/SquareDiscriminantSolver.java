@@ -18,13 +18,14 @@ package io.github.mangara.diophantine.quadratic;
 import io.github.mangara.diophantine.LinearSolver;
 import io.github.mangara.diophantine.Utils;
 import io.github.mangara.diophantine.XYPair;
+import io.github.mangara.diophantine.iterators.FilteredMappingIterator;
 import io.github.mangara.diophantine.iterators.MergedIterator;
 import io.github.mangara.diophantine.utils.Divisors;
+import io.github.mangara.diophantine.utils.Primes;
 import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
+import java.util.PrimitiveIterator;
 
 /**
  * Solves quadratic Diophantine equations in two variables, where the discriminant is a perfect square.
@@ -105,27 +106,21 @@ public class SquareDiscriminantSolver {
             BigInteger c2 = c.divide(h);
             BigInteger k2 = k.divide(h);
             
-            List<XYPair> solutions = new ArrayList<>();
-            List<Long> divisors = Divisors.getPositiveAndNegativeDivisors(k2.longValueExact());
-            
-            for (Long divisor : divisors) {
-                BigInteger Y = BigInteger.valueOf(divisor);
-                BigInteger Xtop = k2.divide(BigInteger.valueOf(divisor)).subtract(c2.multiply(Y));
-                
-                if (Xtop.mod(b2.abs()).signum() == 0) {
-                    BigInteger X = Xtop.divide(b2);
-                    
-                    BigInteger xD = X.add(alpha);
-                    BigInteger yD = Y.add(beta);
-
-                    if (xD.mod(D).signum() == 0 && yD.mod(D).signum() == 0) {
-                        solutions.add(new XYPair(xD.divide(D), yD.divide(D)));
-                    }
-                }
-            }
-            
-            return solutions.iterator();
+            return new FilteredMappingIterator<>(positiveAndNegativeDivisors(k2),
+                    Y -> solveZeroAForDivisor(Y, b2, c2, k2, alpha, beta, D));
+        }
+    }
+
+    // Returns the solution with Y = divisor to Y((b/h)X + (c/h)Y) = k/h, or null if there is none
+    private static XYPair solveZeroAForDivisor(BigInteger Y, BigInteger b2, BigInteger c2, BigInteger k2, BigInteger alpha, BigInteger beta, BigInteger D) {
+        BigInteger Xtop = k2.divide(Y).subtract(c2.multiply(Y));
+
+        if (Xtop.mod(b2.abs()).signum() != 0) {
+            return null;
         }
+
+        BigInteger X = Xtop.divide(b2);
+        return toSolution(X, Y, alpha, beta, D);
     }
 
     // Pre: D = b^2 - 4ac = g^2, g > 0 && a != 0
@@ -182,44 +177,72 @@ public class SquareDiscriminantSolver {
             // so we can test each divisor d_i (positive and negative) of 4ak / g1g2
             // to see if we can solve the system T1 = d_i, T2 = 4ak / g1g2d_i
 
-            List<XYPair> solutions = new ArrayList<>();
-            List<Long> divisors = Divisors.getPositiveAndNegativeDivisors(fourAK.divide(g1g2).longValueExact());
-
-            for (Long divisor : divisors) {
-                // We need to solve
-                //  (1) (2a / g1)X + ((b + g) / g1)Y = divisor
-                //  (2) (2a / g2)X + ((b - g) / g2)Y = 4ak / (g1g2 divisor)
-                // Adding (g2 / g1) times (2) to (1) gives
-                //  (2g / g1) Y = divisor - 4ak / (g1^2 divisor)
-                //            Y = ((g1 divisor)^2 - 4ak) / (2g g1 divisor)
-                BigInteger div = BigInteger.valueOf(divisor);
-                
-                BigInteger Ytop = g1.multiply(g1).multiply(div.multiply(div)).subtract(fourAK);
-                BigInteger Ybottom = BigInteger.TWO.multiply(g).multiply(g1).multiply(div);
-
-                if (Ytop.mod(Ybottom.abs()).signum() == 0) {
-                    BigInteger Y = Ytop.divide(Ybottom);
-
-                    // Subsituting into (2a / g1)X + ((b + g) / g1)Y = divisor gives
-                    //  X = (g1 divisor - (b + g) Y) / 2a
-                    BigInteger Xtop = g1.multiply(div).subtract(b.add(g).multiply(Y));
-                    BigInteger Xbottom = BigInteger.TWO.multiply(a);
-
-                    if (Xtop.mod(Xbottom.abs()).signum() == 0) {
-                        BigInteger X = Xtop.divide(Xbottom);
-                        
-                        BigInteger xD = X.add(alpha);
-                        BigInteger yD = Y.add(beta);
-
-                        if (xD.mod(D).signum() == 0 && yD.mod(D).signum() == 0) {
-                            solutions.add(new XYPair(xD.divide(D), yD.divide(D)));
-                        }
-                    }
-                }
-            }
+            return new FilteredMappingIterator<>(positiveAndNegativeDivisors(fourAK.divide(g1g2)),
+                    div -> solveNonZeroAForDivisor(div, a, b, g, g1, fourAK, alpha, beta, D));
+        }
+    }
+
+    // Returns the solution with T1 = divisor to T1 T2 = 4ak / g1g2, or null if there is none
+    private static XYPair solveNonZeroAForDivisor(BigInteger div, BigInteger a, BigInteger b, BigInteger g, BigInteger g1, BigInteger fourAK, BigInteger alpha, BigInteger beta, BigInteger D) {
+        // We need to solve
+        //  (1) (2a / g1)X + ((b + g) / g1)Y = divisor
+        //  (2) (2a / g2)X + ((b - g) / g2)Y = 4ak / (g1g2 divisor)
+        // Adding (g2 / g1) times (2) to (1) gives
+        //  (2g / g1) Y = divisor - 4ak / (g1^2 divisor)
+        //            Y = ((g1 divisor)^2 - 4ak) / (2g g1 divisor)
+        BigInteger Ytop = g1.multiply(g1).multiply(div.multiply(div)).subtract(fourAK);
+        BigInteger Ybottom = BigInteger.TWO.multiply(g).multiply(g1).multiply(div);
+
+        if (Ytop.mod(Ybottom.abs()).signum() != 0) {
+            return null;
+        }
+
+        BigInteger Y = Ytop.divide(Ybottom);
 
-            return solutions.iterator();
+        // Subsituting into (2a / g1)X + ((b + g) / g1)Y = divisor gives
+        //  X = (g1 divisor - (b + g) Y) / 2a
+        BigInteger Xtop = g1.multiply(div).subtract(b.add(g).multiply(Y));
+        BigInteger Xbottom = BigInteger.TWO.multiply(a);
+
+        if (Xtop.mod(Xbottom.abs()).signum() != 0) {
+            return null;
         }
+
+        BigInteger X = Xtop.divide(Xbottom);
+        return toSolution(X, Y, alpha, beta, D);
+    }
+
+    // Undoes Legendre's transformation Dx = X + alpha and Dy = Y + beta, or returns null if x or y is not integer
+    private static XYPair toSolution(BigInteger X, BigInteger Y, BigInteger alpha, BigInteger beta, BigInteger D) {
+        BigInteger xD = X.add(alpha);
+        BigInteger yD = Y.add(beta);
+
+        if (xD.mod(D).signum() != 0 || yD.mod(D).signum() != 0) {
+            return null;
+        }
+
+        return new XYPair(xD.divide(D), yD.divide(D));
     }
 
+    // Enumerates the divisors of n lazily and smallest first when n fits in a long,
+    // as small divisors tend to give the small solutions
+    private static Iterator<BigInteger> positiveAndNegativeDivisors(BigInteger n) {
+        if (n.bitLength() >= Long.SIZE) {
+            return Divisors.getPositiveAndNegativeDivisors(n).iterator();
+        }
+
+        PrimitiveIterator.OfLong divisors = Divisors.sortedPositiveAndNegativeDivisorIterator(Primes.factor(n.abs().longValue()));
+
+        return new Iterator<BigInteger>() {
+            @Override
+            public boolean hasNext() {
+                return divisors.hasNext();
+            }
+
+            @Override
+            public BigInteger next() {
+                return BigInteger.valueOf(divisors.nextLong());
+            }
+        };
+    }
 }
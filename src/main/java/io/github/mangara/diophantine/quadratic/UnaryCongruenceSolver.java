@@ -16,18 +16,47 @@
 
 package io.github.mangara.diophantine.quadratic;
 
+import io.github.mangara.diophantine.XYPair;
+import io.github.mangara.diophantine.instrumentation.CongruenceEvent;
+import io.github.mangara.diophantine.instrumentation.Instrumentation;
+import io.github.mangara.diophantine.instrumentation.Phase;
+import io.github.mangara.diophantine.utils.ArithmeticProgression;
+import io.github.mangara.diophantine.utils.ChineseRemainder;
+import io.github.mangara.diophantine.utils.ExtendedEuclidean;
+import io.github.mangara.diophantine.utils.Hensel;
+import io.github.mangara.diophantine.utils.LruCache;
+import io.github.mangara.diophantine.utils.ModularSqrt;
+import io.github.mangara.diophantine.utils.Primes;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A solver for unary quadratic congruences
  *  a x^2 + b x + c = 0 (mod n)
  * , where n > 1.
+ * <p>
+ * When n divides a, the congruence is linear and its solutions form an
+ * arithmetic progression, which is returned as an
+ * {@link ArithmeticProgression} view instead of being listed one by one.
+ * When there are more than {@link Integer#MAX_VALUE} solutions, the list view
+ * is truncated, but {@link ArithmeticProgression#getCount()} and the solution
+ * iterators still cover all of them.
  */
 public class UnaryCongruenceSolver {
     
+    // Roots modulo recent prime powers, keyed by (a, b, c, p^k) with the coefficients reduced modulo p^k.
+    // The restricted solvers solve modulo n/d^2 for every square divisor d^2 of n, and those moduli share most prime powers.
+    private static final int CACHE_CAPACITY = 1024;
+    private static final LruCache<List<BigInteger>, List<BigInteger>> cache = new LruCache<>(CACHE_CAPACITY);
+    // Modulo p^k there can be up to about p^(k/2) roots, so larger lists are not cached to keep the cache's memory bounded
+    private static final int MAX_CACHED_ROOTS = 64;
+    private static final LongAdder cacheHits = new LongAdder();
+    
     /**
      * Solves the quadratic congruence
      *  a x^2 + b x + c = 0 (mod n)
@@ -58,66 +87,468 @@ public class UnaryCongruenceSolver {
         if (n.signum() <= 0) {
             throw new IllegalArgumentException("n too small");
         }
-        if (n.equals(BigInteger.ONE)) {
-            return Collections.singletonList(BigInteger.ZERO);
+        
+        // Linear congruences don't need the factorization of n
+        List<BigInteger> primes = a.mod(n).signum() == 0 ? Collections.emptyList() : Primes.getDistinctPrimeFactors(n);
+        return solve(a, b, c, n, primes);
+    }
+    
+    /**
+     * Solves the quadratic congruence
+     *  a x^2 + b x + c = 0 (mod n)
+     * given that n > 1, and a list of primes that includes every prime
+     * divisor of n. This saves factoring n when the caller already knows the
+     * prime factors of a multiple of n.
+     * 
+     * @param a
+     * @param b
+     * @param c
+     * @param n
+     * @param primes
+     * @return all integer solutions {@literal 0 <= x < n} to a x^2 + b x + c = 0 (mod n)
+     */
+    public static List<BigInteger> solve(BigInteger a, BigInteger b, BigInteger c, BigInteger n, List<BigInteger> primes) {
+        if (n.signum() <= 0) {
+            throw new IllegalArgumentException("n too small");
         }
         
-        if (a.signum() == 0) {
-            return solveLinear(b, c, n);
+        long start = Instrumentation.start();
+        List<BigInteger> solutions = a.mod(n).signum() == 0 ? solveLinear(b, c, n) : solvePositive(a, b, c, n, primes);
+        Instrumentation.phaseCompleted(Phase.CONGRUENCE, start, n.bitLength());
+        Instrumentation.congruenceSolved(n, solutions.size());
+        return solutions;
+    }
+    
+    /**
+     * Returns a lazy iterator over the solutions of the quadratic congruence
+     *  a x^2 + b x + c = 0 (mod n)
+     * given that n > 1.
+     * <p>
+     * Only the solutions modulo the prime powers dividing n are computed up
+     * front; the solutions modulo n are combined from those on demand and are
+     * not returned in any particular order. This keeps memory use low when n
+     * has many prime factors and the caller may stop early.
+     * 
+     * @param a
+     * @param b
+     * @param c
+     * @param n
+     * @return an iterator over all integer solutions {@literal 0 <= x < n} to a x^2 + b x + c = 0 (mod n)
+     */
+    public static Iterator<BigInteger> solutionIterator(BigInteger a, BigInteger b, BigInteger c, BigInteger n) {
+        if (n.signum() <= 0) {
+            throw new IllegalArgumentException("n too small");
         }
-        if (a.signum() < 0) {
-            a = a.negate();
-            b = b.negate();
-            c = c.negate();
+        
+        List<BigInteger> primes = a.mod(n).signum() == 0 ? Collections.emptyList() : Primes.getDistinctPrimeFactors(n);
+        return solutionIterator(a, b, c, n, primes);
+    }
+    
+    /**
+     * Returns a lazy iterator over the solutions of the quadratic congruence
+     *  a x^2 + b x + c = 0 (mod n)
+     * given that n > 1, and a list of primes that includes every prime
+     * divisor of n. See {@link #solutionIterator(BigInteger, BigInteger, BigInteger, BigInteger)}.
+     * 
+     * @param a
+     * @param b
+     * @param c
+     * @param n
+     * @param primes
+     * @return an iterator over all integer solutions {@literal 0 <= x < n} to a x^2 + b x + c = 0 (mod n)
+     */
+    public static Iterator<BigInteger> solutionIterator(BigInteger a, BigInteger b, BigInteger c, BigInteger n, List<BigInteger> primes) {
+        if (n.signum() <= 0) {
+            throw new IllegalArgumentException("n too small");
         }
         
-        if (b.signum() == 0) {
-            return solveReduced(a, c, n);
+        long start = Instrumentation.start();
+        Iterator<BigInteger> solutions;
+        long count;
+        
+        if (a.mod(n).signum() == 0) {
+            List<BigInteger> linearSolutions = solveLinear(b, c, n);
+            
+            if (linearSolutions instanceof ArithmeticProgression) {
+                // There can be more solutions than fit in the list view
+                ArithmeticProgression progression = (ArithmeticProgression) linearSolutions;
+                solutions = progression.elements();
+                count = progression.getCount().min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+            } else {
+                solutions = linearSolutions.iterator();
+                count = linearSolutions.size();
+            }
         } else {
-            // TODO: speed up
-            return bruteForce(a, b, c, n);
+            List<List<BigInteger>> primePowerSolutions = new ArrayList<>();
+            List<BigInteger> primePowers = new ArrayList<>();
+            solvePrimePowers(a, b, c, n, primes, primePowerSolutions, primePowers);
+            
+            solutions = ChineseRemainder.combinationIterator(primePowerSolutions, primePowers);
+            count = 1;
+            
+            for (List<BigInteger> primePowerSolution : primePowerSolutions) {
+                count *= primePowerSolution.size();
+            }
+        }
+        
+        Instrumentation.phaseCompleted(Phase.CONGRUENCE, start, n.bitLength());
+        Instrumentation.congruenceSolved(n, (int) Math.min(count, Integer.MAX_VALUE));
+        return solutions;
+    }
+    
+    /**
+     * Counts the solutions {@literal 0 <= x < n} of the quadratic congruence
+     *  a x^2 + b x + c = 0 (mod n)
+     * given that n > 1, without computing them.
+     * <p>
+     * The count is multiplicative over the prime powers dividing n, and modulo
+     * each of them it only depends on whether the discriminant is a square,
+     * which is decided with Jacobi symbols. This is much cheaper than solving
+     * the congruence, so it can be used to discard moduli without solutions.
+     * 
+     * @param a
+     * @param b
+     * @param c
+     * @param n
+     * @return the number of solutions {@literal 0 <= x < n} to a x^2 + b x + c = 0 (mod n)
+     */
+    public static BigInteger countRoots(BigInteger a, BigInteger b, BigInteger c, BigInteger n) {
+        if (n.signum() <= 0) {
+            throw new IllegalArgumentException("n too small");
         }
+        
+        List<BigInteger> primes = a.mod(n).signum() == 0 ? Collections.emptyList() : Primes.getDistinctPrimeFactors(n);
+        return countRoots(a, b, c, n, primes);
+    }
+    
+    /**
+     * Counts the solutions {@literal 0 <= x < n} of the quadratic congruence
+     *  a x^2 + b x + c = 0 (mod n)
+     * given that n > 1, and a list of primes that includes every prime
+     * divisor of n. See {@link #countRoots(BigInteger, BigInteger, BigInteger, BigInteger)}.
+     * 
+     * @param a
+     * @param b
+     * @param c
+     * @param n
+     * @param primes
+     * @return the number of solutions {@literal 0 <= x < n} to a x^2 + b x + c = 0 (mod n)
+     */
+    public static BigInteger countRoots(BigInteger a, BigInteger b, BigInteger c, BigInteger n, List<BigInteger> primes) {
+        if (n.signum() <= 0) {
+            throw new IllegalArgumentException("n too small");
+        }
+        
+        if (a.mod(n).signum() == 0) {
+            // b x + c = 0 (mod n) has gcd(b, n) solutions if gcd(b, n) divides c, and none otherwise
+            BigInteger g = b.gcd(n);
+            return c.mod(g).signum() == 0 ? g : BigInteger.ZERO;
+        }
+        
+        BigInteger count = BigInteger.ONE;
+        
+        for (BigInteger p : primes) {
+            int k = multiplicity(n, p);
+            
+            if (k == 0) {
+                continue;
+            }
+            
+            n = n.divide(p.pow(k));
+            count = count.multiply(countPrimePowerRoots(a, b, c, p, k));
+            
+            if (count.signum() == 0) {
+                return count;
+            }
+        }
+        
+        if (!n.equals(BigInteger.ONE)) {
+            throw new IllegalArgumentException("primes must include every prime divisor of n");
+        }
+        
+        return count;
     }
     
     // Solves b x + c = 0 (mod n)
-    // Pre: n > 1
+    // Pre: n > 0
     private static List<BigInteger> solveLinear(BigInteger b, BigInteger c, BigInteger n) {
-        if (b.signum() == 0) {
-            if (c.signum() == 0) {
-                List<BigInteger> solutions = new ArrayList<>();
-                
-                for (BigInteger i = BigInteger.ZERO; i.compareTo(n) < 0; i = i.add(BigInteger.ONE)) {
-                    solutions.add(i);
-                }
-                
-                return solutions;
-            } else {
-                return Collections.emptyList();
+        // With g = gcd(b, n) = u b + v n, there are solutions if and only if g divides c.
+        // Then x0 = -u c/g is one, and the others differ from it by multiples of n/g.
+        b = b.mod(n);
+        XYPair uv = ExtendedEuclidean.gcdPair(b, n);
+        BigInteger g = uv.x.multiply(b).add(uv.y.multiply(n));
+        BigInteger[] qr = c.divideAndRemainder(g);
+
+        if (qr[1].signum() != 0) {
+            return new ArrayList<>();
+        }
+
+        BigInteger step = n.divide(g);
+        BigInteger x0 = uv.x.multiply(qr[0]).negate().mod(step);
+        return new ArithmeticProgression(x0, step, g);
+    }
+
+    // Pre: n > 0, every prime divisor of n is in primes
+    private static List<BigInteger> solvePositive(BigInteger a, BigInteger b, BigInteger c, BigInteger n, List<BigInteger> primes) {
+        // x is a solution modulo n if and only if it is a solution modulo each prime power p^k that exactly divides n,
+        // so solve those separately and combine the solutions with the Chinese remainder theorem
+        List<List<BigInteger>> primePowerSolutions = new ArrayList<>();
+        List<BigInteger> primePowers = new ArrayList<>();
+        solvePrimePowers(a, b, c, n, primes, primePowerSolutions, primePowers);
+        
+        List<BigInteger> solutions = Collections.singletonList(BigInteger.ZERO);
+        BigInteger modulus = BigInteger.ONE;
+        
+        for (int i = 0; i < primePowers.size(); i++) {
+            solutions = ChineseRemainder.combine(solutions, modulus, primePowerSolutions.get(i), primePowers.get(i));
+            modulus = modulus.multiply(primePowers.get(i));
+        }
+        
+        if (solutions.size() > 1) {
+            solutions = new ArrayList<>(solutions);
+            Collections.sort(solutions);
+        }
+        
+        return solutions;
+    }
+    
+    // Adds the solutions modulo each prime power p^k that exactly divides n to primePowerSolutions, and p^k to primePowers.
+    // Stops early if there is a prime power without solutions.
+    // Pre: n > 0, every prime divisor of n is in primes
+    private static void solvePrimePowers(BigInteger a, BigInteger b, BigInteger c, BigInteger n, List<BigInteger> primes, List<List<BigInteger>> primePowerSolutions, List<BigInteger> primePowers) {
+        for (BigInteger p : primes) {
+            int k = multiplicity(n, p);
+            
+            if (k == 0) {
+                continue;
+            }
+            
+            BigInteger primePower = p.pow(k);
+            n = n.divide(primePower);
+            
+            List<BigInteger> solutions = solvePrimePower(a, b, c, p, k);
+            primePowerSolutions.add(solutions);
+            primePowers.add(primePower);
+            
+            if (solutions.isEmpty()) {
+                return;
             }
         }
         
-        // TODO: speed up
-        return bruteForce(BigInteger.ZERO, b, c, n);
+        if (!n.equals(BigInteger.ONE)) {
+            throw new IllegalArgumentException("primes must include every prime divisor of n");
+        }
     }
     
-    // Solves a x^2 + c = 0 (mod n)
-    // Pre: a > 0, n > 1
-    private static List<BigInteger> solveReduced(BigInteger a, BigInteger c, BigInteger n) {
-        // TODO: speed up
-        return bruteForce(a, BigInteger.ZERO, c, n);
+    // Returns the largest k such that p^k divides n
+    // Pre: n > 0, p > 1
+    private static int multiplicity(BigInteger n, BigInteger p) {
+        int k = 0;
+        BigInteger[] qr = n.divideAndRemainder(p);
+        
+        while (qr[1].signum() == 0) {
+            k++;
+            qr = qr[0].divideAndRemainder(p);
+        }
+        
+        return k;
     }
     
-    private static List<BigInteger> bruteForce(BigInteger a, BigInteger b, BigInteger c, BigInteger n) {
-        List<BigInteger> result = new ArrayList<>();
+    // Returns the number of 0 <= x < p^k with a x^2 + b x + c = 0 (mod p^k), following the cases of primePowerRoots
+    // Pre: p is prime, k >= 0
+    private static BigInteger countPrimePowerRoots(BigInteger a, BigInteger b, BigInteger c, BigInteger p, int k) {
+        if (k == 0) {
+            return BigInteger.ONE;
+        }
         
-        for (BigInteger x = BigInteger.ZERO; x.compareTo(n) < 0; x = x.add(BigInteger.ONE)) {
-            BigInteger calc = a.multiply(x).multiply(x).add(b.multiply(x)).add(c).mod(n);
-
-            if (calc.signum() == 0) {
-                result.add(x);
+        boolean pDividesA = a.mod(p).signum() == 0;
+        boolean pDividesB = b.mod(p).signum() == 0;
+        
+        if (pDividesA && pDividesB) {
+            if (c.mod(p).signum() != 0) {
+                return BigInteger.ZERO;
             }
+            
+            // Each root modulo p^(k - 1) gives p roots modulo p^k
+            return countPrimePowerRoots(a.divide(p), b.divide(p), c.divide(p), p, k - 1).multiply(p);
+        }
+        
+        if (pDividesA) {
+            return BigInteger.ONE;
+        }
+        
+        if (p.equals(BigInteger.TWO)) {
+            if (b.testBit(0)) {
+                // With a and b odd, a + b + c has the same parity as c, so 0 and 1 are either both roots or neither is
+                return c.testBit(0) ? BigInteger.ZERO : BigInteger.TWO;
+            }
+            
+            BigInteger halfB = b.shiftRight(1);
+            return countSquareRoots(halfB.multiply(halfB).subtract(a.multiply(c)), p, k);
+        }
+        
+        return countSquareRoots(b.multiply(b).subtract(a.multiply(c).shiftLeft(2)), p, k);
+    }
+    
+    // Returns the number of 0 <= y < p^k with y^2 = d (mod p^k)
+    // Pre: p is prime, k > 0
+    private static BigInteger countSquareRoots(BigInteger d, BigInteger p, int k) {
+        d = d.mod(p.pow(k));
+        
+        if (d.signum() == 0) {
+            // y^2 = 0 if and only if p^ceil(k/2) divides y
+            return p.pow(k / 2);
+        }
+        
+        // With d = p^v u, y = p^(v/2) z where z^2 = u (mod p^(k - v)) and z is unique modulo p^(k - v/2)
+        int v = multiplicity(d, p);
+        
+        if (v % 2 != 0) {
+            return BigInteger.ZERO;
+        }
+        
+        BigInteger u = d.divide(p.pow(v));
+        BigInteger lifts = p.pow(v / 2);
+        int j = k - v;
+        
+        if (!p.equals(BigInteger.TWO)) {
+            return ModularSqrt.jacobiSymbol(u, p) == 1 ? lifts.shiftLeft(1) : BigInteger.ZERO;
+        }
+        
+        // Odd squares are 1 (mod 8), and an odd u that is 1 (mod 8) has four square roots modulo 2^j for j >= 3
+        int u8 = u.intValue() & 7;
+        
+        if (j == 1) {
+            return lifts;
+        } else if (j == 2) {
+            return (u8 & 3) == 1 ? lifts.shiftLeft(1) : BigInteger.ZERO;
+        } else {
+            return u8 == 1 ? lifts.shiftLeft(2) : BigInteger.ZERO;
+        }
+    }
+    
+    // Returns all 0 <= x < p^k with a x^2 + b x + c = 0 (mod p^k). The returned list may be shared and must not be modified.
+    // Pre: p is prime, k > 0
+    private static List<BigInteger> solvePrimePower(BigInteger a, BigInteger b, BigInteger c, BigInteger p, int k) {
+        BigInteger n = p.pow(k);
+        a = a.mod(n);
+        b = b.mod(n);
+        c = c.mod(n);
+        
+        List<BigInteger> key = Arrays.asList(a, b, c, n);
+        List<BigInteger> roots = cache.get(key);
+        
+        if (roots != null) {
+            cacheHits.increment();
+            return roots;
         }
         
-        return result;
+        CongruenceEvent event = new CongruenceEvent();
+        event.begin();
+
+        roots = Collections.unmodifiableList(primePowerRoots(a, b, c, p, k));
+
+        if (event.shouldCommit()) {
+            event.modulus = n.toString();
+            event.modulusBits = n.bitLength();
+            event.roots = roots.size();
+            event.commit();
+        }
+
+        if (roots.size() <= MAX_CACHED_ROOTS) {
+            cache.put(key, roots);
+        }
+        
+        return roots;
+    }
+    
+    // Removes all cached roots modulo prime powers, so that the next solve computes them again
+    static void clearCache() {
+        cache.clear();
+    }
+    
+    // Returns the number of times roots modulo a prime power were found in the cache
+    static long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    // Returns all 0 <= x < p^k with a x^2 + b x + c = 0 (mod p^k)
+    // Pre: p is prime, k >= 0
+    private static List<BigInteger> primePowerRoots(BigInteger a, BigInteger b, BigInteger c, BigInteger p, int k) {
+        if (k == 0) {
+            return new ArrayList<>(Collections.singletonList(BigInteger.ZERO));
+        }
+
+        BigInteger n = p.pow(k);
+        boolean pDividesA = a.mod(p).signum() == 0;
+        boolean pDividesB = b.mod(p).signum() == 0;
+
+        if (pDividesA && pDividesB) {
+            if (c.mod(p).signum() != 0) {
+                return new ArrayList<>();
+            }
+
+            // Every coefficient is divisible by p, so x is a root modulo p^k
+            // if and only if it is a root of (a x^2 + b x + c) / p modulo p^(k - 1)
+            List<BigInteger> roots = primePowerRoots(a.divide(p), b.divide(p), c.divide(p), p, k - 1);
+            return allLifts(roots, p.pow(k - 1), n);
+        }
+
+        if (pDividesA) {
+            // The derivative 2a x + b is a unit modulo p, so the root of b x + c modulo p lifts uniquely
+            BigInteger x = c.negate().multiply(b.modInverse(p)).mod(p);
+            return new ArrayList<>(Collections.singletonList(Hensel.liftRoot(a, b, c, x, n)));
+        }
+
+        if (p.equals(BigInteger.TWO)) {
+            if (b.testBit(0)) {
+                // The derivative 2a x + b is odd, so each root modulo 2 lifts uniquely
+                List<BigInteger> roots = new ArrayList<>(2);
+
+                if (!c.testBit(0)) {
+                    roots.add(Hensel.liftRoot(a, b, c, BigInteger.ZERO, n));
+                }
+                if (!a.add(b).add(c).testBit(0)) {
+                    roots.add(Hensel.liftRoot(a, b, c, BigInteger.ONE, n));
+                }
+
+                return roots;
+            }
+
+            // a (a x^2 + b x + c) = (a x + b/2)^2 - ((b/2)^2 - a c), and a is odd
+            BigInteger halfB = b.shiftRight(1);
+            BigInteger aInverse = a.modInverse(n);
+            List<BigInteger> roots = new ArrayList<>();
+
+            for (BigInteger y : ModularSqrt.sqrtModPrimePower(halfB.multiply(halfB).subtract(a.multiply(c)), p, k)) {
+                roots.add(y.subtract(halfB).multiply(aInverse).mod(n));
+            }
+
+            return roots;
+        }
+
+        // 4a (a x^2 + b x + c) = (2a x + b)^2 - (b^2 - 4ac), and 4a is a unit modulo p^k
+        BigInteger twoAInverse = a.shiftLeft(1).modInverse(n);
+        List<BigInteger> roots = new ArrayList<>();
+
+        for (BigInteger y : ModularSqrt.sqrtModPrimePower(b.multiply(b).subtract(a.multiply(c).shiftLeft(2)), p, k)) {
+            roots.add(y.subtract(b).multiply(twoAInverse).mod(n));
+        }
+
+        return roots;
+    }
+
+    // Returns all 0 <= x < n that are congruent to a root modulo m
+    // Pre: m divides n
+    private static List<BigInteger> allLifts(List<BigInteger> roots, BigInteger m, BigInteger n) {
+        List<BigInteger> lifts = new ArrayList<>();
+
+        for (BigInteger r : roots) {
+            for (BigInteger x = r; x.compareTo(n) < 0; x = x.add(m)) {
+                lifts.add(x);
+            }
+        }
+
+        return lifts;
     }
 }
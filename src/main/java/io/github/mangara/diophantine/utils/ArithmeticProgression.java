@@ -0,0 +1,178 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list view of the arithmetic progression
+ * start, start + step, ..., start + (count - 1) step. Elements are computed
+ * when they are requested, so long progressions take constant space.
+ * <p>
+ * The count can exceed {@link Integer#MAX_VALUE}. In that case the list view
+ * only reaches the first {@link Integer#MAX_VALUE} elements, as
+ * {@link #size()} is clamped, but {@link #getCount()} and
+ * {@link #contains(Object)} still cover the whole progression, and
+ * {@link #elements()} iterates over all of it.
+ */
+public final class ArithmeticProgression extends AbstractList<BigInteger> implements RandomAccess {
+
+    private static final BigInteger MAX_SIZE = BigInteger.valueOf(Integer.MAX_VALUE);
+
+    private final BigInteger start;
+    private final BigInteger step;
+    private final BigInteger count;
+    private final int size;
+
+    /**
+     * Creates the arithmetic progression of the given size.
+     *
+     * @param start
+     * @param step must be positive
+     * @param size must be non-negative
+     */
+    public ArithmeticProgression(BigInteger start, BigInteger step, int size) {
+        this(start, step, BigInteger.valueOf(size));
+    }
+
+    /**
+     * Creates the arithmetic progression with the given number of elements.
+     *
+     * @param start
+     * @param step must be positive
+     * @param count must be non-negative
+     */
+    public ArithmeticProgression(BigInteger start, BigInteger step, BigInteger count) {
+        if (step.signum() <= 0) {
+            throw new IllegalArgumentException("step must be positive");
+        }
+        if (count.signum() < 0) {
+            throw new IllegalArgumentException("count must be non-negative");
+        }
+
+        this.start = start;
+        this.step = step;
+        this.count = count;
+        this.size = count.min(MAX_SIZE).intValue();
+    }
+
+    /**
+     * Returns the first element of the progression.
+     *
+     * @return
+     */
+    public BigInteger getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the difference between consecutive elements.
+     *
+     * @return
+     */
+    public BigInteger getStep() {
+        return step;
+    }
+
+    /**
+     * Returns the number of elements in the progression, which can be larger
+     * than {@link #size()}.
+     *
+     * @return
+     */
+    public BigInteger getCount() {
+        return count;
+    }
+
+    /**
+     * Returns an iterator over every element of the progression, including
+     * those past {@link #size()}.
+     *
+     * @return
+     */
+    public Iterator<BigInteger> elements() {
+        return new Iterator<BigInteger>() {
+            private BigInteger next = start;
+            private BigInteger remaining = count;
+
+            @Override
+            public boolean hasNext() {
+                return remaining.signum() > 0;
+            }
+
+            @Override
+            public BigInteger next() {
+                if (remaining.signum() == 0) {
+                    throw new NoSuchElementException();
+                }
+
+                BigInteger result = next;
+                next = next.add(step);
+                remaining = remaining.subtract(BigInteger.ONE);
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public BigInteger get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        return start.add(step.multiply(BigInteger.valueOf(index)));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        BigInteger index = index(o);
+        return index == null || index.compareTo(MAX_SIZE) >= 0 ? -1 : index.intValue();
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return index(o) != null;
+    }
+
+    // Returns the index of o in the whole progression, or null if it is not an element
+    private BigInteger index(Object o) {
+        if (!(o instanceof BigInteger)) {
+            return null;
+        }
+
+        BigInteger[] qr = ((BigInteger) o).subtract(start).divideAndRemainder(step);
+
+        if (qr[1].signum() != 0 || qr[0].signum() < 0 || qr[0].compareTo(count) >= 0) {
+            return null;
+        }
+
+        return qr[0];
+    }
+}
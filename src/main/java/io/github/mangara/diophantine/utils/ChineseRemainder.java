@@ -19,6 +19,7 @@ package io.github.mangara.diophantine.utils;
 import io.github.mangara.diophantine.XYPair;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public class ChineseRemainder {
@@ -40,6 +41,10 @@ public class ChineseRemainder {
      * @return 
      */
     public static BigInteger solveSystem(List<XYPair> remainders) {
+        if (productBitLength(remainders) < Long.SIZE - 1) {
+            return BigInteger.valueOf(solveSmallSystem(remainders));
+        }
+        
         List<XYPair> equations = new ArrayList<>(remainders);
         
         while (equations.size() > 1) {
@@ -67,6 +72,139 @@ public class ChineseRemainder {
         return equations.get(0).x;
     }
 
+    // An upper bound on the bit length of the product of the moduli
+    private static int productBitLength(List<XYPair> remainders) {
+        int bits = 0;
+        
+        for (XYPair eq : remainders) {
+            bits += eq.y.bitLength();
+        }
+        
+        return bits;
+    }
+    
+    // Pre: the product of the moduli is below 2^62
+    private static long solveSmallSystem(List<XYPair> remainders) {
+        long x = 0, m = 1;
+        
+        for (XYPair eq : remainders) {
+            long r = eq.x.longValue(), n = eq.y.longValue();
+            x = combine(x, m, r, n);
+            m *= n;
+        }
+        
+        return x;
+    }
+    
+    // Returns 0 <= x < m1 m2 with x = r1 (mod m1) and x = r2 (mod m2)
+    // Pre: gcd(m1, m2) = 1, 0 <= r1 < m1, 0 <= r2 < m2, m1 m2 < 2^63
+    private static long combine(long r1, long m1, long r2, long m2) {
+        if (m2 % 2 == 0) {
+            return combine(r2, m2, r1, m1);
+        }
+        
+        if (m2 == 1) {
+            return r1;
+        }
+        
+        // Garner's formula, as in the list version below
+        Montgomery mont = new Montgomery(m2);
+        long inverse = mont.toMontgomery(ExtendedEuclidean.modInverse(m1, m2));
+        long difference = Math.floorMod(r2 - r1, m2);
+        return r1 + m1 * mont.multiply(inverse, difference);
+    }
+    
+    /**
+     * Returns all {@literal 0 <= x < m_1 m_2} such that x = r_1 (mod m_1) and
+     * x = r_2 (mod m_2) for some r_1 in roots1 and r_2 in roots2, in no
+     * particular order.
+     * 
+     * The pre-conditions are that m_1 and m_2 are relatively prime, and
+     * {@literal 0 <= r_i < m_i}.
+     * 
+     * @param roots1
+     * @param m1
+     * @param roots2
+     * @param m2
+     * @return 
+     */
+    public static List<BigInteger> combine(List<BigInteger> roots1, BigInteger m1, List<BigInteger> roots2, BigInteger m2) {
+        BigInteger m = m1.multiply(m2);
+        
+        if (m.bitLength() < Long.SIZE) {
+            return combine(roots1, m1.longValue(), roots2, m2.longValue());
+        }
+        
+        // u m1 + v m2 = 1, so x = r1 v m2 + r2 u m1
+        XYPair uv = ExtendedEuclidean.gcdPair(m1, m2);
+        BigInteger e1 = uv.y.multiply(m2).mod(m);
+        BigInteger e2 = uv.x.multiply(m1).mod(m);
+        List<BigInteger> result = new ArrayList<>(roots1.size() * roots2.size());
+        
+        for (BigInteger r1 : roots1) {
+            BigInteger x1 = r1.multiply(e1);
+            
+            for (BigInteger r2 : roots2) {
+                result.add(x1.add(r2.multiply(e2)).mod(m));
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Returns a lazy iterator over all {@literal 0 <= x < m_1 m_2 ... m_k}
+     * such that x = r_i (mod m_i) for some r_i in roots.get(i), for each i.
+     * The roots are generated on demand, in no particular order.
+     * 
+     * The pre-conditions are that all the m_i are relatively prime, and
+     * {@literal 0 <= r_i < m_i}.
+     * 
+     * @param roots
+     * @param moduli
+     * @return 
+     */
+    public static Iterator<BigInteger> combinationIterator(List<List<BigInteger>> roots, List<BigInteger> moduli) {
+        return new ChineseRemainderIterator(roots, moduli);
+    }
+    
+    // Pre: m1 m2 < 2^63
+    private static List<BigInteger> combine(List<BigInteger> roots1, long m1, List<BigInteger> roots2, long m2) {
+        if (m2 % 2 == 0) {
+            // At most one of m1 and m2 is even, and the arithmetic below needs m2 to be odd
+            return combine(roots2, m2, roots1, m1);
+        }
+        
+        List<BigInteger> result = new ArrayList<>(roots1.size() * roots2.size());
+        
+        if (m2 == 1) {
+            result.addAll(roots1);
+            return result;
+        }
+        
+        // Garner's formula x = r1 + m1 ((r2 - r1) m1^-1 mod m2) only needs arithmetic modulo m2
+        Montgomery mont = new Montgomery(m2);
+        long inverse = mont.toMontgomery(ExtendedEuclidean.modInverse(m1, m2));
+        
+        for (BigInteger root1 : roots1) {
+            long r1 = root1.longValue();
+            long r1ModM2 = r1 % m2;
+            
+            for (BigInteger root2 : roots2) {
+                long difference = root2.longValue() - r1ModM2;
+                
+                if (difference < 0) {
+                    difference += m2;
+                }
+                
+                // The inverse is in Montgomery form and the difference is not, so their product is not
+                result.add(BigInteger.valueOf(r1 + m1 * mont.multiply(inverse, difference)));
+            }
+        }
+        
+        return result;
+    }
+
     private static XYPair reduce(XYPair eq1, XYPair eq2) {
         XYPair bezoutPair = ExtendedEuclidean.gcdPair(eq1.y, eq2.y);
         
@@ -75,14 +213,7 @@ public class ChineseRemainder {
                 .add(eq2.x.multiply(bezoutPair.x).multiply(eq1.y));
         BigInteger newDivisor = eq1.y.multiply(eq2.y);
         
-        while (newRemainder.compareTo(BigInteger.ZERO) < 0) {
-            newRemainder = newRemainder.add(newDivisor);
-        }
-        while (newRemainder.compareTo(newDivisor) > 0) {
-            newRemainder = newRemainder.subtract(newDivisor);
-        }
-        
-        return new XYPair(newRemainder, newDivisor);
+        return new XYPair(newRemainder.mod(newDivisor), newDivisor);
     }
 
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator over all combinations of roots modulo pairwise relatively prime
+ * moduli, each turned into the corresponding root modulo their product.
+ * <p>
+ * With n the product of the moduli m_i, x = sum r_i e_i (mod n), where
+ * e_i = 1 (mod m_i) and e_i = 0 (mod m_j) for j != i. The terms r_i e_i are
+ * computed up front, and the iterator steps through the combinations like an
+ * odometer, so each root only costs an addition and a subtraction.
+ */
+class ChineseRemainderIterator implements Iterator<BigInteger> {
+
+    private final BigInteger modulus;
+    private final BigInteger[][] terms;
+    private final int[] index;
+    private BigInteger current;
+    private boolean hasNext;
+
+    // Pre: the moduli are relatively prime, 0 <= r < m_i for every r in roots.get(i)
+    ChineseRemainderIterator(List<List<BigInteger>> roots, List<BigInteger> moduli) {
+        BigInteger n = BigInteger.ONE;
+
+        for (BigInteger m : moduli) {
+            n = n.multiply(m);
+        }
+
+        modulus = n;
+        terms = new BigInteger[roots.size()][];
+        index = new int[roots.size()];
+        current = BigInteger.ZERO;
+        hasNext = true;
+
+        for (int i = 0; i < terms.length; i++) {
+            List<BigInteger> rootsI = roots.get(i);
+
+            if (rootsI.isEmpty()) {
+                hasNext = false;
+                return;
+            }
+
+            BigInteger m = moduli.get(i);
+            BigInteger cofactor = n.divide(m);
+            BigInteger e = cofactor.multiply(cofactor.modInverse(m));
+            terms[i] = new BigInteger[rootsI.size()];
+
+            for (int j = 0; j < terms[i].length; j++) {
+                terms[i][j] = rootsI.get(j).multiply(e).mod(n);
+            }
+
+            current = current.add(terms[i][0]);
+        }
+
+        current = current.mod(n);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public BigInteger next() {
+        if (!hasNext) {
+            throw new NoSuchElementException();
+        }
+
+        BigInteger result = current;
+        advance();
+        return result;
+    }
+
+    private void advance() {
+        for (int i = 0; i < terms.length; i++) {
+            BigInteger previous = terms[i][index[i]];
+
+            if (index[i] + 1 < terms[i].length) {
+                index[i]++;
+                current = current.subtract(previous).add(terms[i][index[i]]).mod(modulus);
+                return;
+            }
+
+            // Wrap this digit around and carry to the next one
+            index[i] = 0;
+            current = current.subtract(previous).add(terms[i][0]);
+        }
+
+        hasNext = false;
+    }
+}
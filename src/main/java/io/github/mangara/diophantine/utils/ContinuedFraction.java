@@ -16,18 +16,31 @@
 package io.github.mangara.diophantine.utils;
 
 import io.github.mangara.diophantine.XYPair;
+import io.github.mangara.diophantine.instrumentation.ContinuedFractionEvent;
+import io.github.mangara.diophantine.instrumentation.Instrumentation;
+import io.github.mangara.diophantine.instrumentation.Phase;
 import java.math.BigInteger;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.RandomAccess;
+
+/**
+ * A finite or eventually periodic continued fraction.
+ * <p>
+ * The coefficients are stored once in a primitive array. Coefficients beyond
+ * the stored ones are found by indexing into the repeating part, so the
+ * periodic tail is never materialized.
+ */
 public class ContinuedFraction {
 
     public static final int NO_REPETITION = -1;
 
-    private final List<Long> coefficients;
+    private final long[] coefficients;
     private final int repetitionStart;
 
     /**
@@ -93,13 +106,34 @@ public class ContinuedFraction {
      * @return
      */
     public static ContinuedFraction ofExpression(BigInteger a, BigInteger b, BigInteger c) {
+        ContinuedFractionEvent event = new ContinuedFractionEvent();
+        event.begin();
+        long start = Instrumentation.start();
+        
+        ContinuedFraction cf = expand(a, b, c);
+        
+        Instrumentation.phaseCompleted(Phase.CONTINUED_FRACTION, start, b.bitLength());
+        Instrumentation.continuedFractionExpanded(b, cf.getPeriod());
+        
+        if (event.shouldCommit()) {
+            event.b = b.toString();
+            event.bBits = b.bitLength();
+            event.coefficients = cf.coefficients.length;
+            event.period = cf.getPeriod();
+            event.commit();
+        }
+        
+        return cf;
+    }
+
+    private static ContinuedFraction expand(BigInteger a, BigInteger b, BigInteger c) {
         if (b.subtract(a.multiply(a)).remainder(c) != BigInteger.ZERO) { // b - a^2 is not divisible by c, multiply by c first so that all divisions are exact
             a = a.multiply(c);
             b = b.multiply(c).multiply(c);
             c = c.multiply(c);
         }
 
-        List<Long> coefficients = new ArrayList<>();
+        long[] coefficients = new long[16];
         Map<XYPair, Integer> pairs = new HashMap<>();
         
         BigInteger[] sqrtBAndRemainder = b.sqrtAndRemainder();
@@ -111,7 +145,11 @@ public class ContinuedFraction {
         int i = 0;
 
         do {
-            coefficients.add(coefficient);
+            if (i == coefficients.length) {
+                coefficients = Arrays.copyOf(coefficients, 2 * i);
+            }
+            
+            coefficients[i] = coefficient;
             pairs.put(pair, i);
             i++;
 
@@ -119,7 +157,7 @@ public class ContinuedFraction {
             c = b.subtract(a.multiply(a)).divide(c); // (B - A * A) / C;
 
             if (c.signum() == 0) {
-                return new ContinuedFraction(coefficients, NO_REPETITION);
+                return new ContinuedFraction(Arrays.copyOf(coefficients, i), NO_REPETITION);
             }
 
             coefficient = coefficient(a, sqrtB, c, bIsPerfectSquare);
@@ -127,7 +165,7 @@ public class ContinuedFraction {
             pair = new XYPair(a, c);
         } while (!pairs.containsKey(pair));
 
-        return new ContinuedFraction(coefficients, pairs.get(pair));
+        return new ContinuedFraction(Arrays.copyOf(coefficients, i), pairs.get(pair));
     }
     
     // floor((a + sqrt(b))/c)
@@ -157,11 +195,25 @@ public class ContinuedFraction {
      * @param repetitionStart
      */
     public ContinuedFraction(List<Long> coefficients, int repetitionStart) {
-        if (coefficients.isEmpty()) {
+        this(coefficients.stream().mapToLong(Long::longValue).toArray(), repetitionStart);
+    }
+
+    /**
+     * Creates a new finite continued fraction with the given coefficients.
+     *
+     * @param coefficients
+     */
+    public ContinuedFraction(List<Long> coefficients) {
+        this(coefficients, NO_REPETITION);
+    }
+
+    // The array is owned by this instance
+    ContinuedFraction(long[] coefficients, int repetitionStart) {
+        if (coefficients.length == 0) {
             throw new IllegalArgumentException("coefficients may not be empty");
         }
-        if (repetitionStart >= coefficients.size()) {
-            throw new IllegalArgumentException("repetitionStart must be a 0-based index of a coefficient, received " + repetitionStart + " with only " + coefficients.size() + " coefficients.");
+        if (repetitionStart >= coefficients.length) {
+            throw new IllegalArgumentException("repetitionStart must be a 0-based index of a coefficient, received " + repetitionStart + " with only " + coefficients.length + " coefficients.");
         }
 
         this.coefficients = coefficients;
@@ -169,12 +221,44 @@ public class ContinuedFraction {
     }
 
     /**
-     * Creates a new finite continued fraction with the given coefficients.
+     * Returns the number of stored coefficients: all of them if this continued
+     * fraction is finite, or up to and including the first period otherwise.
      *
-     * @param coefficients
+     * @return
      */
-    public ContinuedFraction(List<Long> coefficients) {
-        this(coefficients, NO_REPETITION);
+    public int getCoefficientCount() {
+        return coefficients.length;
+    }
+
+    /**
+     * Returns the i-th coefficient of this continued fraction, with i = 0 the
+     * integer part. If this continued fraction is infinite, i can be any
+     * non-negative index.
+     *
+     * @param i
+     * @return
+     * @throws IndexOutOfBoundsException if this continued fraction is finite
+     * and has at most i coefficients
+     */
+    public long getCoefficient(int i) {
+        if (i < coefficients.length) {
+            return coefficients[i];
+        }
+        if (repetitionStart == NO_REPETITION) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + coefficients.length);
+        }
+
+        return coefficients[repetitionStart + (i - repetitionStart) % getPeriod()];
+    }
+
+    /**
+     * Returns a copy of the stored coefficients. See
+     * {@link #getCoefficientCount()}.
+     *
+     * @return
+     */
+    public long[] getCoefficientArray() {
+        return coefficients.clone();
     }
 
     /**
@@ -183,7 +267,7 @@ public class ContinuedFraction {
      * @return
      */
     public List<Long> getCoefficients() {
-        return coefficients;
+        return new CoefficientList(0, coefficients.length);
     }
 
     /**
@@ -206,7 +290,7 @@ public class ContinuedFraction {
         if (repetitionStart == NO_REPETITION) {
             return Collections.emptyList();
         } else {
-            return coefficients.subList(repetitionStart, coefficients.size());
+            return new CoefficientList(repetitionStart, coefficients.length - repetitionStart);
         }
     }
 
@@ -220,7 +304,7 @@ public class ContinuedFraction {
         if (repetitionStart == NO_REPETITION) {
             return 0;
         } else {
-            return coefficients.size() - repetitionStart;
+            return coefficients.length - repetitionStart;
         }
     }
 
@@ -230,21 +314,42 @@ public class ContinuedFraction {
      * If length is greater than the number of coefficients, the repeating
      * coefficients are repeated as often as necessary if this continued
      * fraction is infinite. Otherwise, all coefficients are returned.
+     * <p>
+     * The returned list is a view that looks up each coefficient with
+     * {@link #getCoefficient(int)}.
      *
      * @param length
      * @return
      */
     public List<Long> getCoefficients(int length) {
-        List<Long> repeating = getRepeatingCoefficients();
-        List<Long> result = new ArrayList<>(coefficients);
+        int size = repetitionStart == NO_REPETITION ? Math.min(length, coefficients.length) : length;
+        return new CoefficientList(0, size);
+    }
+
+    // An unmodifiable view of the coefficients from index offset onwards
+    private class CoefficientList extends AbstractList<Long> implements RandomAccess {
 
-        if (!repeating.isEmpty()) {
-            while (result.size() < length) {
-                result.addAll(repeating);
+        private final int offset;
+        private final int size;
+
+        CoefficientList(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public Long get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
             }
+
+            return getCoefficient(offset + index);
         }
 
-        return result.subList(0, Math.min(length, result.size()));
+        @Override
+        public int size() {
+            return size;
+        }
     }
 
     /**
@@ -257,7 +362,7 @@ public class ContinuedFraction {
             throw new IllegalArgumentException("Must specify a length for infinite continued fractions.");
         }
         
-        return getConvergents(coefficients.size());
+        return getConvergents(coefficients.length);
     }
     
     /**
@@ -274,21 +379,22 @@ public class ContinuedFraction {
             return Collections.emptyList();
         }
 
-        List<Long> cfs = getCoefficients(length);
         List<BigInteger> num = new ArrayList<>(length + 1);
         List<BigInteger> den = new ArrayList<>(length + 1);
         List<XYPair> result = new ArrayList<>(length);
 
         num.add(BigInteger.ONE); // r_0 = 1
-        num.add(BigInteger.valueOf(cfs.get(0))); // r_1 = a_1
+        num.add(BigInteger.valueOf(coefficients[0])); // r_1 = a_1
 
         den.add(BigInteger.ZERO); // s_0 = 0
         den.add(BigInteger.ONE); // s_1 = 1
 
         result.add(new XYPair(num.get(1), den.get(1))); // C_1 = r_1 / s_1 = a_1 / 1
 
-        for (int i = 1; i < length; i++) {
-            BigInteger coeff = BigInteger.valueOf(cfs.get(i));
+        int count = repetitionStart == NO_REPETITION ? Math.min(length, coefficients.length) : length;
+
+        for (int i = 1; i < count; i++) {
+            BigInteger coeff = BigInteger.valueOf(getCoefficient(i));
 
             // r_n = a_n r_(n-1) + r_(n-2)
             BigInteger newNum = coeff.multiply(num.get(i)).add(num.get(i - 1));
@@ -313,12 +419,11 @@ public class ContinuedFraction {
      * @return
      */
     public XYPair convergent(int i) {
-        List<Long> cfs = getCoefficients(i + 1);
-        BigInteger numerator = BigInteger.valueOf(cfs.get(i));
+        BigInteger numerator = BigInteger.valueOf(getCoefficient(i));
         BigInteger denominator = BigInteger.ONE;
 
         for (int j = i - 1; j >= 0; j--) {
-            BigInteger n = BigInteger.valueOf(cfs.get(j));
+            BigInteger n = BigInteger.valueOf(getCoefficient(j));
 
             // Compute n + 1 / fraction = n + denominator / numerator = (n * numerator + denominator) / numerator
             BigInteger oldNumerator = numerator;
@@ -340,8 +445,8 @@ public class ContinuedFraction {
      * @return
      */
     public List<BigInteger> getCompleteQuotientDenominators(int length, BigInteger a, BigInteger b, BigInteger c) {
-        List<Long> cfs = getCoefficients(length);
-        List<BigInteger> denominators = new ArrayList<>(length);
+        int count = repetitionStart == NO_REPETITION ? Math.min(length, coefficients.length) : length;
+        List<BigInteger> denominators = new ArrayList<>(count);
         
         if (b.subtract(a.multiply(a)).remainder(c) != BigInteger.ZERO) { // b - a^2 is not divisible by c, multiply by c first so that all divisions are exact
             a = a.multiply(c);
@@ -349,9 +454,9 @@ public class ContinuedFraction {
             c = c.multiply(c);
         }
         
-        for (Long coefficient : cfs) {
+        for (int i = 0; i < count; i++) {
             denominators.add(c);
-            a = BigInteger.valueOf(coefficient).multiply(c).subtract(a);
+            a = BigInteger.valueOf(getCoefficient(i)).multiply(c).subtract(a);
             c = b.subtract(a.multiply(a)).divide(c);
         }
         
@@ -360,23 +465,23 @@ public class ContinuedFraction {
     
     @Override
     public String toString() {
-        if (coefficients.isEmpty()) {
+        if (coefficients.length == 0) {
             return "[]";
-        } else if (coefficients.size() == 1) {
-            return "[" + Long.toString(coefficients.get(0)) + "]";
+        } else if (coefficients.length == 1) {
+            return "[" + Long.toString(coefficients[0]) + "]";
         }
 
         StringBuilder sb = new StringBuilder("[");
 
-        sb.append(coefficients.get(0));
+        sb.append(coefficients[0]);
         sb.append(';');
 
-        for (int i = 1; i < coefficients.size(); i++) {
+        for (int i = 1; i < coefficients.length; i++) {
             if (i == repetitionStart) {
                 sb.append('(');
             }
 
-            sb.append(coefficients.get(i));
+            sb.append(coefficients[i]);
             sb.append(',');
         }
 
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import io.github.mangara.diophantine.instrumentation.Instrumentation;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A lazy iterator over the divisors of a factored number. It steps through the
+ * exponents of the primes like an odometer, with the exponent of the smallest
+ * prime changing fastest, so it only needs a few arrays of the size of the
+ * factorization. For example, the divisors of 18 are returned as
+ * [1, 2, 3, 6, 9, 18].
+ * <p>
+ * The divisors are reported to {@link Instrumentation} once the iterator is
+ * exhausted, so iterations that stop early are not counted.
+ */
+class DivisorIterator implements PrimitiveIterator.OfLong {
+
+    private final PrimeFactorization factorization;
+    // counts[i] is the exponent of the i-th prime in divisor, powers[i] the corresponding power of that prime
+    private final int[] counts;
+    private final long[] powers;
+    private long divisor = 1;
+    private boolean hasNext = true;
+    private int returned = 0;
+
+    /**
+     * Creates an iterator over the positive divisors of the factored number.
+     *
+     * @param factorization
+     */
+    DivisorIterator(PrimeFactorization factorization) {
+        this.factorization = factorization;
+        this.counts = new int[factorization.getDistinctPrimeCount()];
+        this.powers = new long[counts.length];
+        Arrays.fill(powers, 1);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public long nextLong() {
+        if (!hasNext) {
+            throw new NoSuchElementException();
+        }
+
+        long result = divisor;
+        returned++;
+        advance();
+
+        if (!hasNext) {
+            Instrumentation.divisorsEnumerated(factorization.getNumber(), returned);
+        }
+
+        return result;
+    }
+
+    private void advance() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] < factorization.getExponent(i)) {
+                counts[i]++;
+                powers[i] *= factorization.getPrime(i);
+                divisor *= factorization.getPrime(i);
+                return;
+            }
+
+            // Roll this prime back to exponent 0 and carry over to the next one
+            divisor /= powers[i];
+            counts[i] = 0;
+            powers[i] = 1;
+        }
+
+        hasNext = false;
+    }
+}
@@ -15,8 +15,11 @@
  */
 package io.github.mangara.diophantine.utils;
 
+import io.github.mangara.diophantine.instrumentation.Instrumentation;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.PrimitiveIterator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -29,19 +32,255 @@ public class Divisors {
      * @return
      */
     public static List<Long> getDivisors(long n) {
-        List<Long> factors = Primes.getPrimeFactors(n);
-        List<Long> divisors = new ArrayList<>();
-        divisors.add(1L);
-        long prevFactor = -1;
+        return getDivisors(Primes.factor(n));
+    }
+
+    /**
+     * Returns the list of all positive divisors of the factored number.
+     *
+     * @param factorization
+     * @return
+     */
+    public static List<Long> getDivisors(PrimeFactorization factorization) {
+        List<Long> divisors = toList(factorization.getDivisors());
+
+        Instrumentation.divisorsEnumerated(factorization.getNumber(), divisors.size());
+        return divisors;
+    }
+
+    /**
+     * Returns a lazy iterator over all positive divisors of the factored
+     * number. The divisors are enumerated like an odometer over the exponents
+     * of the primes, so this order can differ from that of
+     * {@link #getDivisors(PrimeFactorization)}. The divisors are reported to
+     * the instrumentation once the iterator is exhausted.
+     *
+     * @param factorization
+     * @return
+     */
+    public static PrimitiveIterator.OfLong divisorIterator(PrimeFactorization factorization) {
+        return new DivisorIterator(factorization);
+    }
+
+    /**
+     * Returns a lazy iterator over all divisors of the factored number, with
+     * each occurring twice: positive and negative. The positive divisors are
+     * reported to the instrumentation once the iterator is exhausted.
+     *
+     * @param factorization
+     * @return
+     */
+    public static PrimitiveIterator.OfLong positiveAndNegativeDivisorIterator(PrimeFactorization factorization) {
+        return new PositiveAndNegativeIterator(new DivisorIterator(factorization));
+    }
+
+    /**
+     * Returns a lazy iterator over all positive divisors of the factored number
+     * in increasing order. The divisors are reported to the instrumentation
+     * once the iterator is exhausted.
+     *
+     * @param factorization
+     * @return
+     */
+    public static PrimitiveIterator.OfLong sortedDivisorIterator(PrimeFactorization factorization) {
+        return new SortedDivisorIterator(factorization);
+    }
+
+    /**
+     * Returns a lazy iterator over all divisors of the factored number in
+     * increasing order of absolute value, with each occurring twice: positive
+     * and negative. The positive divisors are reported to the instrumentation
+     * once the iterator is exhausted.
+     *
+     * @param factorization
+     * @return
+     */
+    public static PrimitiveIterator.OfLong sortedPositiveAndNegativeDivisorIterator(PrimeFactorization factorization) {
+        return new PositiveAndNegativeIterator(new SortedDivisorIterator(factorization));
+    }
+
+    /**
+     * Returns a list of all divisors of n, with each occurring twice: positive
+     * and negative.
+     *
+     * @param n the number to divide, must be non-zero
+     * @return
+     */
+    public static List<Long> getPositiveAndNegativeDivisors(long n) {
+        return getDivisors(Math.abs(n)).stream()
+                .flatMap(d -> Stream.of(d, -d))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Returns a list of all divisors of n that are perfect squares.
+     *
+     * @param n the number to divide, must be positive
+     * @return
+     */
+    public static List<Long> getSquareDivisors(long n) {
+        return getSquareDivisors(Primes.factor(n));
+    }
+
+    /**
+     * Returns a list of all divisors of the factored number that are perfect
+     * squares.
+     *
+     * @param factorization
+     * @return
+     */
+    public static List<Long> getSquareDivisors(PrimeFactorization factorization) {
+        List<Long> squareDivisors = toList(factorization.getSquareDivisors());
+
+        Instrumentation.divisorsEnumerated(factorization.getNumber(), squareDivisors.size());
+        return squareDivisors;
+    }
+
+    /**
+     * Returns the number of positive divisors of n, tau(n), without
+     * enumerating them.
+     *
+     * @param n the number to divide, must be positive
+     * @return
+     */
+    public static long countDivisors(long n) {
+        return countDivisors(Primes.factor(n));
+    }
+
+    /**
+     * Returns the number of positive divisors of the factored number, tau(n),
+     * without enumerating them.
+     *
+     * @param factorization
+     * @return
+     */
+    public static long countDivisors(PrimeFactorization factorization) {
+        return factorization.getDivisorCount();
+    }
+
+    /**
+     * Returns the sum of all positive divisors of n, sigma(n), without
+     * enumerating them.
+     *
+     * @param n the number to divide, must be positive
+     * @return
+     * @throws ArithmeticException if the sum does not fit in a long
+     */
+    public static long sumDivisors(long n) {
+        return sumDivisors(Primes.factor(n));
+    }
+
+    /**
+     * Returns the sum of all positive divisors of the factored number,
+     * sigma(n), without enumerating them.
+     *
+     * @param factorization
+     * @return
+     * @throws ArithmeticException if the sum does not fit in a long
+     */
+    public static long sumDivisors(PrimeFactorization factorization) {
+        long sum = 1;
+
+        for (int i = 0; i < factorization.getDistinctPrimeCount(); i++) {
+            // 1 + p + p^2 + ... + p^e
+            long p = factorization.getPrime(i);
+            long power = 1;
+            long primeSum = 1;
+
+            for (int j = 0; j < factorization.getExponent(i); j++) {
+                power *= p; // Can't overflow, as p^e divides n
+                primeSum = Math.addExact(primeSum, power);
+            }
+
+            sum = Math.multiplyExact(sum, primeSum);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Returns the number of divisors of n that are perfect squares, without
+     * enumerating them.
+     *
+     * @param n the number to divide, must be positive
+     * @return
+     */
+    public static long countSquareDivisors(long n) {
+        return countSquareDivisors(Primes.factor(n));
+    }
+
+    /**
+     * Returns the number of divisors of the factored number that are perfect
+     * squares, without enumerating them.
+     *
+     * @param factorization
+     * @return
+     */
+    public static long countSquareDivisors(PrimeFactorization factorization) {
+        long count = 1;
+
+        for (int i = 0; i < factorization.getDistinctPrimeCount(); i++) {
+            count *= factorization.getExponent(i) / 2 + 1;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the largest divisor of n that is a perfect square.
+     *
+     * @param n the number to divide, must be positive
+     * @return
+     */
+    public static long getLargestSquareDivisor(long n) {
+        return getLargestSquareDivisor(Primes.factor(n));
+    }
+
+    /**
+     * Returns the largest divisor of the factored number that is a perfect
+     * square.
+     *
+     * @param factorization
+     * @return
+     */
+    public static long getLargestSquareDivisor(PrimeFactorization factorization) {
+        long square = 1;
+
+        for (int i = 0; i < factorization.getDistinctPrimeCount(); i++) {
+            long p = factorization.getPrime(i);
+
+            for (int j = 0; j < factorization.getExponent(i) / 2; j++) {
+                square *= p * p;
+            }
+        }
+
+        return square;
+    }
+
+    /**
+     * Returns the list of all positive divisors of n.
+     *
+     * @param n the number to divide, must be positive
+     * @return
+     */
+    public static List<BigInteger> getDivisors(BigInteger n) {
+        if (n.bitLength() < Long.SIZE) {
+            return toBigIntegers(getDivisors(n.longValue()));
+        }
+
+        List<BigInteger> factors = Primes.getPrimeFactors(n);
+        List<BigInteger> divisors = new ArrayList<>();
+        divisors.add(BigInteger.ONE);
+        BigInteger prevFactor = null;
         int factorCount = -1;
 
-        for (Long f : factors) {
-            if (f == prevFactor) {
+        for (BigInteger f : factors) {
+            if (f.equals(prevFactor)) {
                 factorCount++;
                 continue;
             }
 
-            if (prevFactor > 0) {
+            if (prevFactor != null) {
                 divisors.addAll(getNewDivisors(divisors, prevFactor, factorCount));
             }
 
@@ -51,17 +290,18 @@ public class Divisors {
 
         divisors.addAll(getNewDivisors(divisors, prevFactor, factorCount));
 
+        Instrumentation.divisorsEnumerated(n, divisors.size());
         return divisors;
     }
 
-    private static List<Long> getNewDivisors(List<Long> divisors, long prevFactor, int factorCount) {
-        List<Long> newDivisors = new ArrayList<>();
+    private static List<BigInteger> getNewDivisors(List<BigInteger> divisors, BigInteger prevFactor, int factorCount) {
+        List<BigInteger> newDivisors = new ArrayList<>();
 
-        for (Long d : divisors) {
-            long factor = prevFactor;
+        for (BigInteger d : divisors) {
+            BigInteger factor = prevFactor;
             for (int i = 0; i < factorCount; i++) {
-                newDivisors.add(d * factor);
-                factor *= prevFactor;
+                newDivisors.add(d.multiply(factor));
+                factor = factor.multiply(prevFactor);
             }
         }
 
@@ -75,46 +315,62 @@ public class Divisors {
      * @param n the number to divide, must be non-zero
      * @return
      */
-    public static List<Long> getPositiveAndNegativeDivisors(long n) {
-        return getDivisors(Math.abs(n)).stream()
-                .flatMap(d -> Stream.of(d, -d))
+    public static List<BigInteger> getPositiveAndNegativeDivisors(BigInteger n) {
+        return getDivisors(n.abs()).stream()
+                .flatMap(d -> Stream.of(d, d.negate()))
                 .collect(Collectors.toList());
     }
-    
+
     /**
      * Returns a list of all divisors of n that are perfect squares.
      *
      * @param n the number to divide, must be positive
      * @return
      */
-    public static List<Long> getSquareDivisors(long n) {
-        List<Long> factors = Primes.getPrimeFactors(n);
-        List<Long> squareDivisors = new ArrayList<>();
-        squareDivisors.add(1L);
-        long prevFactor = -1;
+    public static List<BigInteger> getSquareDivisors(BigInteger n) {
+        if (n.bitLength() < Long.SIZE) {
+            return toBigIntegers(getSquareDivisors(n.longValue()));
+        }
+
+        List<BigInteger> factors = Primes.getPrimeFactors(n);
+        List<BigInteger> squareDivisors = new ArrayList<>();
+        squareDivisors.add(BigInteger.ONE);
+        BigInteger prevFactor = null;
         int factorCount = -1;
 
-        for (Long f : factors) {
-            if (f == prevFactor) {
+        for (BigInteger f : factors) {
+            if (f.equals(prevFactor)) {
                 factorCount++;
                 continue;
             }
 
-            if (prevFactor > 0 && factorCount > 1) {
-                // Process the previous factors
-                squareDivisors.addAll(getNewDivisors(squareDivisors, prevFactor * prevFactor, factorCount / 2));
+            if (prevFactor != null && factorCount > 1) {
+                squareDivisors.addAll(getNewDivisors(squareDivisors, prevFactor.multiply(prevFactor), factorCount / 2));
             }
 
-            // Reset
             prevFactor = f;
             factorCount = 1;
         }
 
-        // Process the previous factors
         if (factorCount > 1) {
-            squareDivisors.addAll(getNewDivisors(squareDivisors, prevFactor * prevFactor, factorCount / 2));
+            squareDivisors.addAll(getNewDivisors(squareDivisors, prevFactor.multiply(prevFactor), factorCount / 2));
         }
 
+        Instrumentation.divisorsEnumerated(n, squareDivisors.size());
         return squareDivisors;
     }
+
+    private static List<Long> toList(long[] values) {
+        List<Long> list = new ArrayList<>(values.length);
+
+        for (long value : values) {
+            list.add(value);
+        }
+
+        return list;
+    }
+
+    private static List<BigInteger> toBigIntegers(List<Long> values) {
+        return values.stream().map(BigInteger::valueOf).collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.math.BigInteger;
+
+/**
+ * Lenstra's elliptic curve method, with Montgomery curves and a baby-step
+ * giant-step second stage.
+ * <p>
+ * The time to find a prime factor p depends on the size of p rather than n,
+ * so this finds factors of up to about 20 digits that are out of reach for
+ * Pollard's rho algorithm. Curves are tried with increasing bounds, and if
+ * none of them find a factor, the search is abandoned. This bounds the time
+ * spent on numbers that are products of larger primes.
+ * <p>
+ * Based on P. L. Montgomery, "Speeding the Pollard and elliptic curve methods
+ * of factorization", Mathematics of Computation 48 (1987), 243-264.
+ */
+class EllipticCurveMethod {
+
+    // Stage 1 bounds and the number of curves to try with each, roughly enough to find factors of 15 and 20 digits.
+    // The next step would be 300 curves with bound 50000, which costs fifteen times as much as these together.
+    private static final int[] STAGE_1_BOUNDS = {2000, 11000};
+    private static final int[] CURVES = {25, 90};
+    // Stage 2 covers the primes up to this multiple of the stage 1 bound
+    private static final int STAGE_2_FACTOR = 100;
+    // The giant step of stage 2; the baby steps are the odd numbers up to half of it
+    private static final int GIANT_STEP = 210;
+
+    private final BigInteger n;
+    private BigInteger a24;
+
+    private EllipticCurveMethod(BigInteger n) {
+        this.n = n;
+    }
+
+    /**
+     * Returns a non-trivial factor of n.
+     *
+     * @param n must be odd, composite, and not a perfect power
+     * @return a factor d with {@literal 1 < d < n}
+     * @throws ArithmeticException if no factor was found within the largest bounds
+     */
+    static BigInteger findFactor(BigInteger n) {
+        EllipticCurveMethod ecm = new EllipticCurveMethod(n);
+        // Suyama's parametrization needs sigma not in {0, 1, 3, 5}
+        long sigma = 6;
+
+        for (int i = 0; i < STAGE_1_BOUNDS.length; i++) {
+            int b1 = STAGE_1_BOUNDS[i];
+            int[] primes = Primes.primesUpTo(STAGE_2_FACTOR * b1);
+
+            for (int curve = 0; curve < CURVES[i]; curve++, sigma++) {
+                BigInteger factor = ecm.tryCurve(BigInteger.valueOf(sigma), b1, primes);
+
+                if (factor.compareTo(BigInteger.ONE) > 0 && factor.compareTo(n) < 0) {
+                    return factor;
+                }
+            }
+        }
+
+        throw new ArithmeticException("No factor of " + n + " found");
+    }
+
+    // Returns gcd(n, the order of the starting point on the curve), which is a factor if it is smooth enough
+    private BigInteger tryCurve(BigInteger sigma, int b1, int[] primes) {
+        // Suyama's parametrization: u = sigma^2 - 5, v = 4 sigma, the curve has (A + 2) / 4 = (v - u)^3 (3u + v) / (16 u^3 v)
+        // and the starting point is (u^3 : v^3)
+        BigInteger u = sigma.multiply(sigma).subtract(BigInteger.valueOf(5)).mod(n);
+        BigInteger v = sigma.shiftLeft(2).mod(n);
+        BigInteger u3 = u.pow(3).mod(n);
+        BigInteger denominator = u3.multiply(v).shiftLeft(4).mod(n);
+        BigInteger g = denominator.gcd(n);
+
+        if (!g.equals(BigInteger.ONE)) {
+            return g;
+        }
+
+        a24 = v.subtract(u).pow(3).multiply(u.multiply(BigInteger.valueOf(3)).add(v)).multiply(denominator.modInverse(n)).mod(n);
+        Point q = new Point(u3, v.pow(3).mod(n));
+
+        // Stage 1: multiply by every prime power up to b1
+        int i = 0;
+
+        for (; i < primes.length && primes[i] <= b1; i++) {
+            for (long power = primes[i]; power <= b1; power *= primes[i]) {
+                q = multiply(q, primes[i]);
+            }
+        }
+
+        g = q.z.gcd(n);
+
+        if (!g.equals(BigInteger.ONE)) {
+            return g;
+        }
+
+        return stage2(q, primes, i);
+    }
+
+    // Looks for a single prime p = m D +/- j beyond b1 that completes the order, by comparing x-coordinates of mD Q and j Q
+    private BigInteger stage2(Point q, int[] primes, int start) {
+        if (start == primes.length) {
+            return BigInteger.ONE;
+        }
+
+        // babySteps[j / 2] = j Q for odd j up to D / 2. As b1 > D, m > 1 for every prime.
+        Point[] babySteps = new Point[GIANT_STEP / 4 + 1];
+        Point q2 = doubled(q);
+        babySteps[0] = q;
+        babySteps[1] = add(q2, q, q);
+
+        for (int k = 2; k < babySteps.length; k++) {
+            babySteps[k] = add(babySteps[k - 1], q2, babySteps[k - 2]);
+        }
+
+        Point giantStep = multiply(q, GIANT_STEP);
+        int m = (primes[start] + GIANT_STEP / 2) / GIANT_STEP;
+        Point previous = multiply(q, (m - 1) * GIANT_STEP);
+        Point current = multiply(q, m * GIANT_STEP);
+        BigInteger product = BigInteger.ONE;
+
+        for (int i = start; i < primes.length; i++) {
+            int p = primes[i];
+
+            while (p > m * GIANT_STEP + GIANT_STEP / 2) {
+                Point next = add(current, giantStep, previous);
+                previous = current;
+                current = next;
+                m++;
+            }
+
+            Point baby = babySteps[Math.abs(p - m * GIANT_STEP) / 2];
+            product = product.multiply(current.x.multiply(baby.z).subtract(baby.x.multiply(current.z))).mod(n);
+        }
+
+        return product.gcd(n);
+    }
+
+    // Returns k P with the Montgomery ladder
+    // Pre: k > 0
+    private Point multiply(Point p, long k) {
+        if (k == 1) {
+            return p;
+        }
+
+        Point r0 = p;
+        Point r1 = doubled(p);
+
+        for (int bit = Long.SIZE - Long.numberOfLeadingZeros(k) - 2; bit >= 0; bit--) {
+            if ((k >> bit & 1) == 1) {
+                r0 = add(r1, r0, p);
+                r1 = doubled(r1);
+            } else {
+                r1 = add(r1, r0, p);
+                r0 = doubled(r0);
+            }
+        }
+
+        return r0;
+    }
+
+    private Point doubled(Point p) {
+        BigInteger sum = p.x.add(p.z);
+        BigInteger difference = p.x.subtract(p.z);
+        BigInteger sum2 = sum.multiply(sum).mod(n);
+        BigInteger difference2 = difference.multiply(difference).mod(n);
+        BigInteger t = sum2.subtract(difference2);
+        return new Point(sum2.multiply(difference2).mod(n), t.multiply(difference2.add(a24.multiply(t))).mod(n));
+    }
+
+    // Returns P + Q, given P - Q
+    private Point add(Point p, Point q, Point difference) {
+        BigInteger s = p.x.subtract(p.z).multiply(q.x.add(q.z));
+        BigInteger t = p.x.add(p.z).multiply(q.x.subtract(q.z));
+        BigInteger sum = s.add(t).mod(n);
+        BigInteger diff = s.subtract(t).mod(n);
+        return new Point(difference.z.multiply(sum).multiply(sum).mod(n), difference.x.multiply(diff).multiply(diff).mod(n));
+    }
+
+    // A point (x : z) in projective coordinates, without the y-coordinate
+    private static class Point {
+
+        final BigInteger x, z;
+
+        Point(BigInteger x, BigInteger z) {
+            this.x = x;
+            this.z = z;
+        }
+    }
+}
@@ -57,4 +57,35 @@ public class ExtendedEuclidean {
         return new XYPair(prevS, prevT);
     }
 
+    /**
+     * Returns the inverse of a modulo n.
+     * 
+     * @param a
+     * @param n the modulus, must be positive
+     * @return the unique {@literal 0 <= x < n} with a x = 1 (mod n)
+     * @throws ArithmeticException if a and n are not relatively prime
+     */
+    public static long modInverse(long a, long n) {
+        long prevR = n, curR = Math.floorMod(a, n);
+        long prevS = 0, curS = 1;
+        
+        while (curR != 0) {
+            long q = prevR / curR;
+            long temp = curR;
+            curR = prevR - q * curR;
+            prevR = temp;
+            
+            // The coefficients stay below n in absolute value, so this can't overflow
+            temp = curS;
+            curS = prevS - q * curS;
+            prevS = temp;
+        }
+        
+        if (prevR != 1) {
+            throw new ArithmeticException(a + " is not invertible modulo " + n);
+        }
+        
+        return Math.floorMod(prevS, n);
+    }
+
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.math.BigInteger;
+
+/**
+ * Hensel lifting of roots of quadratic polynomials to prime power moduli.
+ * <p>
+ * Moduli below 2^63 are handled with long arithmetic: Montgomery
+ * multiplication for odd moduli and plain wrapping multiplication for powers
+ * of two.
+ */
+public class Hensel {
+
+    /**
+     * Lifts a root x of a x^2 + b x + c modulo p to the unique root modulo
+     * n = p^k that is congruent to x modulo p. This requires that x is a
+     * simple root, that is, that the derivative 2a x + b is not divisible by
+     * p.
+     *
+     * @param a
+     * @param b
+     * @param c
+     * @param x a simple root of a x^2 + b x + c modulo p
+     * @param n a power of the prime p
+     * @return the unique {@literal 0 <= y < n} with y = x (mod p) and
+     * a y^2 + b y + c = 0 (mod n)
+     */
+    public static BigInteger liftRoot(BigInteger a, BigInteger b, BigInteger c, BigInteger x, BigInteger n) {
+        if (n.bitLength() < Long.SIZE) {
+            long modulus = n.longValue();
+
+            if (modulus % 2 == 1 && modulus > 1) {
+                return BigInteger.valueOf(liftRoot(new Montgomery(modulus), a.mod(n).longValue(), b.mod(n).longValue(), c.mod(n).longValue(), x.mod(n).longValue()));
+            }
+
+            if (Long.bitCount(modulus) == 1) {
+                long mask = modulus - 1;
+                return BigInteger.valueOf(liftRoot(mask, a.longValue() & mask, b.longValue() & mask, c.longValue() & mask, x.longValue() & mask));
+            }
+        }
+
+        // Newton's method doubles the power of p that divides f(x) in each step
+        while (true) {
+            BigInteger fx = a.multiply(x).add(b).multiply(x).add(c).mod(n);
+
+            if (fx.signum() == 0) {
+                return x.mod(n);
+            }
+
+            BigInteger derivative = a.multiply(x).shiftLeft(1).add(b);
+            x = x.subtract(fx.multiply(derivative.modInverse(n))).mod(n);
+        }
+    }
+
+    // Pre: 0 <= a, b, c, x < n, where n is the odd modulus of m
+    private static long liftRoot(Montgomery m, long a, long b, long c, long x) {
+        long n = m.getModulus();
+        long aM = m.toMontgomery(a);
+        long twoAM = m.add(aM, aM);
+        long bM = m.toMontgomery(b);
+        long cM = m.toMontgomery(c);
+        long xM = m.toMontgomery(x);
+
+        while (true) {
+            long fx = m.add(m.multiply(m.add(m.multiply(aM, xM), bM), xM), cM);
+
+            if (fx == 0) {
+                return m.fromMontgomery(xM);
+            }
+
+            long derivative = m.fromMontgomery(m.add(m.multiply(twoAM, xM), bM));
+            long inverse = m.toMontgomery(ExtendedEuclidean.modInverse(derivative, n));
+            xM = m.subtract(xM, m.multiply(fx, inverse));
+        }
+    }
+
+    // Arithmetic modulo a power of two: the low bits of a product don't depend on the high bits of its factors
+    // Pre: 0 <= a, b, c, x <= mask, where mask + 1 is the modulus
+    private static long liftRoot(long mask, long a, long b, long c, long x) {
+        while (true) {
+            long fx = (a * x * x + b * x + c) & mask;
+
+            if (fx == 0) {
+                return x;
+            }
+
+            long derivative = 2 * a * x + b; // Odd
+
+            // Newton's iteration for the inverse modulo 2^64 doubles the number of correct low bits each step
+            long inverse = derivative;
+            for (int i = 0; i < 5; i++) {
+                inverse *= 2 - derivative * inverse;
+            }
+
+            x = (x - fx * inverse) & mask;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded map that evicts the least recently used entry when it is full.
+ * This class is safe for concurrent use.
+ * <p>
+ * Every lookup updates the recency order, so even reads need exclusive
+ * access. To keep threads from queueing on a single lock, large caches are
+ * split into independently locked segments by key hash, each holding an equal
+ * share of the capacity. Eviction is then least recently used within a
+ * segment, which approximates global LRU order. Caches with a capacity below
+ * {@value #MIN_SEGMENT_CAPACITY} have a single segment and are exact.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class LruCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+
+    private final List<Map<K, V>> segments;
+    private final int segmentShift;
+
+    /**
+     * Creates an empty cache that holds at most capacity entries.
+     *
+     * @param capacity
+     */
+    public LruCache(int capacity) {
+        int segmentCount = Math.max(1, Math.min(MAX_SEGMENTS, Integer.highestOneBit(capacity / MIN_SEGMENT_CAPACITY)));
+        int segmentCapacity = (capacity + segmentCount - 1) / segmentCount;
+
+        segments = new ArrayList<>(segmentCount);
+        segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > segmentCapacity;
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the value stored for key, or null if there is none.
+     *
+     * @param key
+     * @return
+     */
+    public V get(K key) {
+        Map<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    /**
+     * Stores value for key, evicting the least recently used entry of its
+     * segment if that is full.
+     *
+     * @param key
+     * @param value
+     */
+    public void put(K key, V value) {
+        Map<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+
+        for (Map<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    public void clear() {
+        for (Map<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private Map<K, V> segmentFor(K key) {
+        if (segments.size() == 1) {
+            return segments.get(0);
+        }
+
+        // Use the high bits of a multiplicative hash, as the maps inside the segments index by the low bits
+        return segments.get((key.hashCode() * 0x9E3779B9) >>> segmentShift);
+    }
+}
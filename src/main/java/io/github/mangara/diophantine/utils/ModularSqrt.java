@@ -0,0 +1,464 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Square roots modulo primes and prime powers.
+ * <p>
+ * Roots modulo an odd prime p are found with the Tonelli-Shanks algorithm.
+ * When p - 1 is divisible by a large power of two, Tonelli-Shanks needs many
+ * squarings, so we switch to Cipolla's algorithm, whose cost only depends on
+ * the size of p. Roots modulo prime powers are lifted with Hensel's lemma.
+ */
+public class ModularSqrt {
+
+    /**
+     * Returns whether x^2 = a (mod p) has a solution.
+     *
+     * @param a
+     * @param p a prime
+     * @return
+     */
+    public static boolean isQuadraticResidue(long a, long p) {
+        return p == 2 || jacobiSymbol(a, p) >= 0;
+    }
+
+    /**
+     * Returns whether x^2 = a (mod p) has a solution.
+     *
+     * @param a
+     * @param p a prime
+     * @return
+     */
+    public static boolean isQuadraticResidue(BigInteger a, BigInteger p) {
+        return p.equals(BigInteger.TWO) || jacobiSymbol(a, p) >= 0;
+    }
+
+    /**
+     * Returns the Jacobi symbol (a / n), which for a prime n is the Legendre
+     * symbol: 0 if n divides a, 1 if a is a non-zero square modulo n, and -1
+     * otherwise. It is computed with quadratic reciprocity, so no modular
+     * exponentiation is needed.
+     *
+     * @param a
+     * @param n an odd positive number
+     * @return
+     */
+    public static int jacobiSymbol(long a, long n) {
+        a = Math.floorMod(a, n);
+        int result = 1;
+
+        while (a != 0) {
+            int twos = Long.numberOfTrailingZeros(a);
+            a >>= twos;
+
+            // (2 / n) = -1 if and only if n = 3, 5 (mod 8)
+            if ((twos & 1) == 1 && ((n & 7) == 3 || (n & 7) == 5)) {
+                result = -result;
+            }
+
+            // Reciprocity: (a / n) = -(n / a) if and only if a = n = 3 (mod 4)
+            if ((a & 3) == 3 && (n & 3) == 3) {
+                result = -result;
+            }
+
+            long t = a;
+            a = n % a;
+            n = t;
+        }
+
+        return n == 1 ? result : 0;
+    }
+
+    /**
+     * Returns the Jacobi symbol (a / n). See {@link #jacobiSymbol(long, long)}.
+     *
+     * @param a
+     * @param n an odd positive number
+     * @return
+     */
+    public static int jacobiSymbol(BigInteger a, BigInteger n) {
+        a = a.mod(n);
+        int result = 1;
+
+        while (n.bitLength() >= Long.SIZE) {
+            if (a.signum() == 0) {
+                return 0;
+            }
+
+            int twos = a.getLowestSetBit();
+            a = a.shiftRight(twos);
+            int n8 = n.intValue() & 7;
+
+            if ((twos & 1) == 1 && (n8 == 3 || n8 == 5)) {
+                result = -result;
+            }
+
+            if ((a.intValue() & 3) == 3 && (n8 & 3) == 3) {
+                result = -result;
+            }
+
+            BigInteger t = a;
+            a = n.mod(a);
+            n = t;
+        }
+
+        return result * jacobiSymbol(a.longValue(), n.longValue());
+    }
+
+    /**
+     * Returns a solution {@literal 0 <= x < p} to x^2 = a (mod p). The other
+     * solution, if any, is p - x.
+     *
+     * @param a
+     * @param p a prime
+     * @return the smallest solution, or -1 if a is not a quadratic residue
+     * modulo p
+     */
+    public static long sqrtModPrime(long a, long p) {
+        a = Math.floorMod(a, p);
+
+        if (a == 0 || p == 2) {
+            return a;
+        }
+
+        Montgomery m = new Montgomery(p);
+        long aM = m.toMontgomery(a);
+
+        if (!isResidue(m, aM)) {
+            return -1;
+        }
+
+        long root;
+
+        if ((p & 3) == 3) {
+            root = m.fromMontgomery(m.pow(aM, (p >> 2) + 1)); // (p + 1) / 4
+        } else {
+            int s = Long.numberOfTrailingZeros(p - 1);
+            long rootM = useCipolla(s, Long.SIZE - Long.numberOfLeadingZeros(p)) ? cipolla(m, aM) : tonelliShanks(m, aM, s);
+            root = m.fromMontgomery(rootM);
+        }
+
+        return Math.min(root, p - root);
+    }
+
+    /**
+     * Returns a solution {@literal 0 <= x < p} to x^2 = a (mod p). The other
+     * solution, if any, is p - x.
+     *
+     * @param a
+     * @param p a prime
+     * @return the smallest solution, or null if a is not a quadratic residue
+     * modulo p
+     */
+    public static BigInteger sqrtModPrime(BigInteger a, BigInteger p) {
+        if (p.bitLength() < Long.SIZE) {
+            long root = sqrtModPrime(a.mod(p).longValue(), p.longValue());
+            return root < 0 ? null : BigInteger.valueOf(root);
+        }
+
+        a = a.mod(p);
+
+        if (a.signum() == 0) {
+            return a;
+        }
+
+        if (!a.modPow(p.shiftRight(1), p).equals(BigInteger.ONE)) {
+            return null;
+        }
+
+        BigInteger root;
+
+        if (p.testBit(1)) {
+            root = a.modPow(p.shiftRight(2).add(BigInteger.ONE), p); // (p + 1) / 4
+        } else {
+            int s = p.subtract(BigInteger.ONE).getLowestSetBit();
+            root = useCipolla(s, p.bitLength()) ? cipolla(a, p) : tonelliShanks(a, p, s);
+        }
+
+        return root.min(p.subtract(root));
+    }
+
+    /**
+     * Returns all solutions {@literal 0 <= x < p^k} to x^2 = a (mod p^k), in
+     * increasing order.
+     *
+     * @param a
+     * @param p a prime
+     * @param k the exponent, must be positive
+     * @return
+     */
+    public static List<BigInteger> sqrtModPrimePower(BigInteger a, BigInteger p, int k) {
+        BigInteger n = p.pow(k);
+        a = a.mod(n);
+
+        if (a.signum() == 0) {
+            // x^2 = 0 if and only if p^ceil(k/2) divides x
+            List<BigInteger> roots = new ArrayList<>();
+            BigInteger step = p.pow((k + 1) / 2);
+
+            for (BigInteger x = BigInteger.ZERO; x.compareTo(n) < 0; x = x.add(step)) {
+                roots.add(x);
+            }
+
+            return roots;
+        }
+
+        int v = 0;
+        BigInteger[] qr = a.divideAndRemainder(p);
+
+        while (qr[1].signum() == 0) {
+            a = qr[0];
+            v++;
+            qr = a.divideAndRemainder(p);
+        }
+
+        if (v % 2 == 1) {
+            return new ArrayList<>();
+        }
+
+        // Write a = p^v u and x = p^(v/2) z, then z^2 = u (mod p^(k - v)), where u is a unit.
+        // Each such z modulo p^(k - v) gives p^(v/2) solutions x modulo p^k.
+        int m = k - v;
+        BigInteger pm = p.pow(m);
+        List<BigInteger> unitRoots = p.equals(BigInteger.TWO) ? sqrtUnitModPowerOfTwo(a, m) : sqrtUnitModOddPrimePower(a, p, m, pm);
+        BigInteger scale = p.pow(v / 2);
+        BigInteger bound = n.divide(scale);
+        List<BigInteger> roots = new ArrayList<>();
+
+        for (BigInteger z : unitRoots) {
+            for (BigInteger x = z; x.compareTo(bound) < 0; x = x.add(pm)) {
+                roots.add(x.multiply(scale));
+            }
+        }
+
+        roots.sort(null);
+        return roots;
+    }
+
+    // Returns both 0 <= z < p^m with z^2 = u (mod p^m), or none
+    // Pre: p is an odd prime, m > 0, u is not divisible by p
+    private static List<BigInteger> sqrtUnitModOddPrimePower(BigInteger u, BigInteger p, int m, BigInteger pm) {
+        BigInteger z = sqrtModPrime(u, p);
+
+        if (z == null) {
+            return new ArrayList<>();
+        }
+
+        z = Hensel.liftRoot(BigInteger.ONE, BigInteger.ZERO, u.negate(), z, pm);
+
+        List<BigInteger> roots = new ArrayList<>(2);
+        roots.add(z);
+        roots.add(pm.subtract(z));
+        return roots;
+    }
+
+    // Returns all 0 <= z < 2^m with z^2 = u (mod 2^m)
+    // Pre: m > 0, u is odd
+    private static List<BigInteger> sqrtUnitModPowerOfTwo(BigInteger u, int m) {
+        List<BigInteger> roots = new ArrayList<>(4);
+
+        if (m == 1) {
+            roots.add(BigInteger.ONE);
+            return roots;
+        }
+
+        if (m == 2) {
+            if (!u.testBit(1)) {
+                roots.add(BigInteger.ONE);
+                roots.add(BigInteger.valueOf(3));
+            }
+
+            return roots;
+        }
+
+        if (u.testBit(1) || u.testBit(2)) {
+            // Odd squares are 1 (mod 8)
+            return roots;
+        }
+
+        // z = 1 is a root modulo 8, and if z is a root modulo 2^j but not modulo 2^(j + 1), then z + 2^(j - 1) is
+        BigInteger z = BigInteger.ONE;
+
+        for (int j = 3; j < m; j++) {
+            if (z.multiply(z).subtract(u).testBit(j)) {
+                z = z.setBit(j - 1);
+            }
+        }
+
+        BigInteger n = BigInteger.ONE.shiftLeft(m);
+        BigInteger half = n.shiftRight(1);
+        roots.add(z);
+        roots.add(n.subtract(z));
+        roots.add(z.add(half).mod(n));
+        roots.add(n.subtract(z).add(half).mod(n));
+        return roots;
+    }
+
+    // Tonelli-Shanks needs up to s^2 / 2 squarings beyond its initial exponentiations, where 2^s exactly divides p - 1,
+    // while Cipolla needs a constant number of multiplications per bit of p
+    private static boolean useCipolla(int s, int bits) {
+        return s * s > 8 * bits;
+    }
+
+    // Pre: a is in Montgomery form and not 0, the modulus is an odd prime
+    private static boolean isResidue(Montgomery m, long a) {
+        return m.pow(a, m.getModulus() >> 1) == m.one(); // (p - 1) / 2
+    }
+
+    // Pre: a is a non-zero quadratic residue in Montgomery form, p - 1 = q 2^s with q odd
+    private static long tonelliShanks(Montgomery m, long a, int s) {
+        long p = m.getModulus();
+        long q = (p - 1) >> s;
+        long one = m.one();
+
+        long z = m.add(one, one);
+        while (isResidue(m, z)) {
+            z = m.add(z, one);
+        }
+
+        long c = m.pow(z, q);
+        long r = m.pow(a, (q >> 1) + 1); // (q + 1) / 2
+        long t = m.pow(a, q);
+
+        while (t != one) {
+            // Find the least i such that t^(2^i) = 1
+            int i = 0;
+
+            for (long t2 = t; t2 != one; t2 = m.multiply(t2, t2)) {
+                i++;
+            }
+
+            long root = c;
+
+            for (int j = 0; j < s - i - 1; j++) {
+                root = m.multiply(root, root);
+            }
+
+            s = i;
+            c = m.multiply(root, root);
+            t = m.multiply(t, c);
+            r = m.multiply(r, root);
+        }
+
+        return r;
+    }
+
+    // Pre: a is a non-zero quadratic residue in Montgomery form
+    private static long cipolla(Montgomery m, long a) {
+        // Find t such that w = t^2 - a is not a square, then compute (t + sqrt(w))^((p + 1) / 2) in F_p(sqrt(w))
+        long one = m.one();
+        long t = one;
+        long w = m.subtract(m.multiply(t, t), a);
+
+        while (w == 0 || isResidue(m, w)) {
+            t = m.add(t, one);
+            w = m.subtract(m.multiply(t, t), a);
+        }
+
+        long x = one, y = 0; // The result x + y sqrt(w)
+        long bx = t, by = one; // The base, squared every step
+        long e = (m.getModulus() >> 1) + 1; // (p + 1) / 2
+
+        while (e > 0) {
+            if ((e & 1) == 1) {
+                long newX = m.add(m.multiply(x, bx), m.multiply(m.multiply(y, by), w));
+                y = m.add(m.multiply(x, by), m.multiply(y, bx));
+                x = newX;
+            }
+
+            long newBx = m.add(m.multiply(bx, bx), m.multiply(m.multiply(by, by), w));
+            by = m.multiply(m.add(bx, bx), by);
+            bx = newBx;
+            e >>= 1;
+        }
+
+        return x;
+    }
+
+    // Pre: a is a non-zero quadratic residue modulo the prime p, p - 1 = q 2^s with q odd
+    private static BigInteger tonelliShanks(BigInteger a, BigInteger p, int s) {
+        BigInteger pMinusOne = p.subtract(BigInteger.ONE);
+        BigInteger halfPMinusOne = pMinusOne.shiftRight(1);
+        BigInteger q = pMinusOne.shiftRight(s);
+
+        BigInteger z = BigInteger.TWO;
+        while (z.modPow(halfPMinusOne, p).equals(BigInteger.ONE)) {
+            z = z.add(BigInteger.ONE);
+        }
+
+        BigInteger c = z.modPow(q, p);
+        BigInteger r = a.modPow(q.add(BigInteger.ONE).shiftRight(1), p);
+        BigInteger t = a.modPow(q, p);
+
+        while (!t.equals(BigInteger.ONE)) {
+            // Find the least i such that t^(2^i) = 1
+            int i = 0;
+
+            for (BigInteger t2 = t; !t2.equals(BigInteger.ONE); t2 = t2.multiply(t2).mod(p)) {
+                i++;
+            }
+
+            BigInteger root = c;
+
+            for (int j = 0; j < s - i - 1; j++) {
+                root = root.multiply(root).mod(p);
+            }
+
+            s = i;
+            c = root.multiply(root).mod(p);
+            t = t.multiply(c).mod(p);
+            r = r.multiply(root).mod(p);
+        }
+
+        return r;
+    }
+
+    // Pre: a is a non-zero quadratic residue modulo the odd prime p
+    private static BigInteger cipolla(BigInteger a, BigInteger p) {
+        // Find t such that w = t^2 - a is not a square, then compute (t + sqrt(w))^((p + 1) / 2) in F_p(sqrt(w))
+        BigInteger halfPMinusOne = p.shiftRight(1);
+        BigInteger t = BigInteger.ONE;
+        BigInteger w = t.multiply(t).subtract(a).mod(p);
+
+        while (w.signum() == 0 || w.modPow(halfPMinusOne, p).equals(BigInteger.ONE)) {
+            t = t.add(BigInteger.ONE);
+            w = t.multiply(t).subtract(a).mod(p);
+        }
+
+        BigInteger x = BigInteger.ONE, y = BigInteger.ZERO; // The result x + y sqrt(w)
+        BigInteger bx = t, by = BigInteger.ONE; // The base, squared every step
+        BigInteger e = halfPMinusOne.add(BigInteger.ONE); // (p + 1) / 2
+
+        for (int i = 0; i < e.bitLength(); i++) {
+            if (e.testBit(i)) {
+                BigInteger newX = x.multiply(bx).add(y.multiply(by).mod(p).multiply(w)).mod(p);
+                y = x.multiply(by).add(y.multiply(bx)).mod(p);
+                x = newX;
+            }
+
+            BigInteger newBx = bx.multiply(bx).add(by.multiply(by).mod(p).multiply(w)).mod(p);
+            by = bx.shiftLeft(1).multiply(by).mod(p);
+            bx = newBx;
+        }
+
+        return x;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+/**
+ * Modular arithmetic on longs for a fixed odd modulus {@literal 1 < n < 2^63},
+ * using Montgomery multiplication.
+ * <p>
+ * Values are kept in Montgomery form: a is represented by a R mod n, with
+ * R = 2^64. This makes multiplication free of divisions. Use
+ * {@link #toMontgomery(long)} and {@link #fromMontgomery(long)} to convert.
+ * All methods other than these expect and return values in Montgomery form,
+ * in the range {@literal 0 <= x < n}.
+ */
+public class Montgomery {
+
+    private final long n;
+    private final long negativeInverse; // -n^-1 mod R
+    private final long rSquared; // R^2 mod n
+    private final long one; // R mod n
+
+    /**
+     * Creates a new Montgomery context for the given modulus.
+     *
+     * @param n the modulus, must be odd and greater than 1
+     */
+    public Montgomery(long n) {
+        if (n <= 1 || n % 2 == 0) {
+            throw new IllegalArgumentException("n must be odd and greater than 1");
+        }
+
+        this.n = n;
+
+        // Newton's iteration doubles the number of correct low bits each step, and n * n = 1 (mod 8)
+        long inverse = n;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - n * inverse;
+        }
+        this.negativeInverse = -inverse;
+
+        this.one = Long.remainderUnsigned(-1L, n) + 1 == n ? 0 : Long.remainderUnsigned(-1L, n) + 1;
+
+        // R^2 = R 2^64 (mod n), by doubling R 64 times
+        long square = one;
+        for (int i = 0; i < Long.SIZE; i++) {
+            square = add(square, square);
+        }
+        this.rSquared = square;
+    }
+
+    /**
+     * Returns the modulus.
+     *
+     * @return
+     */
+    public long getModulus() {
+        return n;
+    }
+
+    /**
+     * Returns 1 in Montgomery form.
+     *
+     * @return
+     */
+    public long one() {
+        return one;
+    }
+
+    /**
+     * Converts a into Montgomery form.
+     *
+     * @param a any long
+     * @return
+     */
+    public long toMontgomery(long a) {
+        return multiply(Math.floorMod(a, n), rSquared);
+    }
+
+    /**
+     * Converts a out of Montgomery form.
+     *
+     * @param a
+     * @return the regular value in {@literal [0, n)}
+     */
+    public long fromMontgomery(long a) {
+        return reduce(0, a);
+    }
+
+    /**
+     * Returns a b.
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    public long multiply(long a, long b) {
+        // Both are below 2^63, so the signed high word is the unsigned one
+        return reduce(Math.multiplyHigh(a, b), a * b);
+    }
+
+    /**
+     * Returns a + b.
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    public long add(long a, long b) {
+        long sum = a + b; // Below 2^64, so correct as an unsigned value
+
+        return Long.compareUnsigned(sum, n) >= 0 ? sum - n : sum;
+    }
+
+    /**
+     * Returns a - b.
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    public long subtract(long a, long b) {
+        return a >= b ? a - b : a - b + n;
+    }
+
+    /**
+     * Returns a^e.
+     *
+     * @param a
+     * @param e must be non-negative
+     * @return
+     */
+    public long pow(long a, long e) {
+        long result = one;
+
+        while (e > 0) {
+            if ((e & 1) == 1) {
+                result = multiply(result, a);
+            }
+
+            a = multiply(a, a);
+            e >>= 1;
+        }
+
+        return result;
+    }
+
+    // Returns (hi R + lo) / R mod n, given that hi R + lo < n R
+    private long reduce(long hi, long lo) {
+        long m = lo * negativeInverse;
+        long mnHigh = Math.multiplyHigh(m, n) + ((m >> 63) & n); // Unsigned high word of m n
+
+        // lo + m n = 0 (mod R), so the low words carry exactly when lo != 0
+        long t = hi + mnHigh + (lo == 0 ? 0 : 1); // t < 2n < 2^64
+
+        return Long.compareUnsigned(t, n) >= 0 ? t - n : t;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import io.github.mangara.diophantine.Utils;
+import java.math.BigInteger;
+
+/**
+ * Pollard's rho algorithm with Brent's cycle detection.
+ * <p>
+ * Based on R. P. Brent, "An improved Monte Carlo factorization algorithm",
+ * BIT Numerical Mathematics 20 (1980), 176-184.
+ */
+class PollardRho {
+
+    // The number of differences multiplied together before taking a gcd
+    private static final int BATCH_SIZE = 128;
+    // Bounds for BigIntegers: the polynomials to try, and the cycle length after which an attempt gives up
+    private static final int MAX_ATTEMPTS = 2;
+    private static final long MAX_CYCLE_LENGTH = 1L << 16;
+
+    /**
+     * Returns a non-trivial factor of n.
+     *
+     * @param n must be odd and composite
+     * @return a factor d with {@literal 1 < d < n}
+     */
+    static long findFactor(long n) {
+        Montgomery mont = new Montgomery(n);
+
+        // A failed attempt finds n itself, retry with a different polynomial x^2 + c
+        for (long c = 1; ; c++) {
+            long factor = findFactor(mont, mont.toMontgomery(c));
+
+            if (factor != n) {
+                return factor;
+            }
+        }
+    }
+
+    private static long findFactor(Montgomery mont, long c) {
+        long n = mont.getModulus();
+        long y = mont.toMontgomery(2);
+        long x = y, ys = y;
+        long q = mont.one();
+        long g = 1;
+
+        for (long r = 1; g == 1; r *= 2) {
+            x = y;
+
+            for (long i = 0; i < r; i++) {
+                y = next(mont, y, c);
+            }
+
+            for (long k = 0; k < r && g == 1; k += BATCH_SIZE) {
+                ys = y;
+
+                for (long i = 0; i < Math.min(BATCH_SIZE, r - k); i++) {
+                    y = next(mont, y, c);
+                    q = mont.multiply(q, mont.subtract(x, y));
+                }
+
+                // gcd(x R, n) = gcd(x, n) as R is a power of two and n is odd
+                g = Utils.gcd(q, n);
+            }
+        }
+
+        if (g == n) {
+            // The batch overshot, step through it one at a time
+            do {
+                ys = next(mont, ys, c);
+                g = Utils.gcd(mont.subtract(x, ys), n);
+            } while (g == 1);
+        }
+
+        return g;
+    }
+
+    /**
+     * Looks for a non-trivial factor of n in a bounded number of steps. This
+     * finds factors up to about 2^32, larger ones are left to
+     * {@link EllipticCurveMethod}.
+     *
+     * @param n must be odd and composite
+     * @return a factor d with {@literal 1 < d < n}, or n if none was found
+     */
+    static BigInteger findFactor(BigInteger n) {
+        for (long c = 1; c <= MAX_ATTEMPTS; c++) {
+            BigInteger factor = findFactor(n, BigInteger.valueOf(c));
+
+            if (!factor.equals(n)) {
+                return factor;
+            }
+        }
+
+        return n;
+    }
+
+    // Returns n if no factor was found
+    private static BigInteger findFactor(BigInteger n, BigInteger c) {
+        BigInteger y = BigInteger.TWO;
+        BigInteger x = y, ys = y;
+        BigInteger q = BigInteger.ONE;
+        BigInteger g = BigInteger.ONE;
+
+        for (long r = 1; g.equals(BigInteger.ONE); r *= 2) {
+            if (r > MAX_CYCLE_LENGTH) {
+                return n;
+            }
+
+            x = y;
+
+            for (long i = 0; i < r; i++) {
+                y = next(y, c, n);
+            }
+
+            for (long k = 0; k < r && g.equals(BigInteger.ONE); k += BATCH_SIZE) {
+                ys = y;
+
+                for (long i = 0; i < Math.min(BATCH_SIZE, r - k); i++) {
+                    y = next(y, c, n);
+                    q = q.multiply(x.subtract(y)).mod(n);
+                }
+
+                g = q.gcd(n);
+            }
+        }
+
+        if (g.equals(n)) {
+            do {
+                ys = next(ys, c, n);
+                g = x.subtract(ys).gcd(n);
+            } while (g.equals(BigInteger.ONE));
+        }
+
+        return g;
+    }
+
+    private static BigInteger next(BigInteger x, BigInteger c, BigInteger n) {
+        return x.multiply(x).add(c).mod(n);
+    }
+
+    // x^2 + c
+    private static long next(Montgomery mont, long x, long c) {
+        return mont.add(mont.multiply(x, x), c);
+    }
+}
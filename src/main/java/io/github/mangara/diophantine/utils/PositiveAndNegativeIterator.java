@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An iterator that follows each value d of the underlying iterator by -d.
+ */
+class PositiveAndNegativeIterator implements PrimitiveIterator.OfLong {
+
+    private final PrimitiveIterator.OfLong iterator;
+    private long negative;
+    private boolean negativeNext = false;
+
+    PositiveAndNegativeIterator(PrimitiveIterator.OfLong iterator) {
+        this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return negativeNext || iterator.hasNext();
+    }
+
+    @Override
+    public long nextLong() {
+        if (negativeNext) {
+            negativeNext = false;
+            return negative;
+        }
+
+        if (!iterator.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        long result = iterator.nextLong();
+        negative = -result;
+        negativeNext = true;
+        return result;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The prime factorization p_1^e_1 p_2^e_2 ... p_k^e_k of a positive long, with
+ * {@literal p_1 < p_2 < ... < p_k}. This class is immutable.
+ */
+public final class PrimeFactorization {
+
+    /**
+     * The factorization of 1.
+     */
+    public static final PrimeFactorization ONE = new PrimeFactorization(1, new long[0], new int[0]);
+
+    private final long n;
+    private final long[] primes;
+    private final int[] exponents;
+
+    // Pre: primes are increasing, exponents are positive, and n is the product of primes[i]^exponents[i]
+    // The arrays are owned by this instance
+    PrimeFactorization(long n, long[] primes, int[] exponents) {
+        this.n = n;
+        this.primes = primes;
+        this.exponents = exponents;
+    }
+
+    /**
+     * Returns the number that was factored.
+     *
+     * @return
+     */
+    public long getNumber() {
+        return n;
+    }
+
+    /**
+     * Returns the number of distinct primes that divide n.
+     *
+     * @return
+     */
+    public int getDistinctPrimeCount() {
+        return primes.length;
+    }
+
+    /**
+     * Returns the i-th smallest prime that divides n.
+     *
+     * @param i
+     * @return
+     */
+    public long getPrime(int i) {
+        return primes[i];
+    }
+
+    /**
+     * Returns the exponent of the i-th smallest prime that divides n.
+     *
+     * @param i
+     * @return
+     */
+    public int getExponent(int i) {
+        return exponents[i];
+    }
+
+    /**
+     * Returns the distinct primes that divide n, in increasing order.
+     *
+     * @return
+     */
+    public long[] getPrimes() {
+        return primes.clone();
+    }
+
+    /**
+     * Returns the exponents of the distinct primes that divide n, in the same
+     * order as {@link #getPrimes()}.
+     *
+     * @return
+     */
+    public int[] getExponents() {
+        return exponents.clone();
+    }
+
+    /**
+     * Returns all prime factors of n in increasing order, with each prime
+     * repeated as often as it divides n.
+     *
+     * @return
+     */
+    public List<Long> getPrimeFactors() {
+        List<Long> factors = new ArrayList<>();
+
+        for (int i = 0; i < primes.length; i++) {
+            for (int j = 0; j < exponents[i]; j++) {
+                factors.add(primes[i]);
+            }
+        }
+
+        return factors;
+    }
+
+    /**
+     * Returns the product of the distinct primes that divide n.
+     *
+     * @return
+     */
+    public long getRadical() {
+        long radical = 1;
+
+        for (long p : primes) {
+            radical *= p;
+        }
+
+        return radical;
+    }
+
+    /**
+     * Returns the number of positive divisors of n.
+     *
+     * @return
+     */
+    public long getDivisorCount() {
+        long count = 1;
+
+        for (int e : exponents) {
+            count *= e + 1;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns all positive divisors of n.
+     * <p>
+     * The divisors are generated one prime at a time: first those that only
+     * use p_1, then the ones that use p_1 and p_2, and so on. For example,
+     * the divisors of 12 are [1, 2, 4, 3, 6, 12].
+     *
+     * @return
+     */
+    public long[] getDivisors() {
+        return getDivisors(1);
+    }
+
+    /**
+     * Returns all divisors of n that are perfect squares, in the same order as
+     * {@link #getDivisors()}.
+     *
+     * @return
+     */
+    public long[] getSquareDivisors() {
+        return getDivisors(2);
+    }
+
+    // Returns all divisors of n that are the step-th power of a divisor
+    private long[] getDivisors(int step) {
+        int size = 1;
+
+        for (int e : exponents) {
+            size *= e / step + 1;
+        }
+
+        long[] divisors = new long[size];
+        divisors[0] = 1;
+        int count = 1;
+
+        for (int i = 0; i < primes.length; i++) {
+            long factor = 1;
+
+            for (int j = 0; j < step; j++) {
+                factor *= primes[i];
+            }
+
+            int previousCount = count;
+
+            for (int d = 0; d < previousCount; d++) {
+                long divisor = divisors[d];
+
+                for (int j = 0; j < exponents[i] / step; j++) {
+                    divisor *= factor;
+                    divisors[count++] = divisor;
+                }
+            }
+        }
+
+        return divisors;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(n);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final PrimeFactorization other = (PrimeFactorization) obj;
+        return n == other.n;
+    }
+
+    @Override
+    public String toString() {
+        if (primes.length == 0) {
+            return "1";
+        }
+
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < primes.length; i++) {
+            if (i > 0) {
+                sb.append(" * ");
+            }
+
+            sb.append(primes[i]);
+
+            if (exponents[i] > 1) {
+                sb.append('^').append(exponents[i]);
+            }
+        }
+
+        return sb.toString();
+    }
+}
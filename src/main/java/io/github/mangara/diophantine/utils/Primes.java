@@ -15,22 +15,219 @@
  */
 package io.github.mangara.diophantine.utils;
 
+import io.github.mangara.diophantine.instrumentation.Instrumentation;
+import io.github.mangara.diophantine.instrumentation.Phase;
+import io.github.mangara.diophantine.instrumentation.SieveEvent;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
- * A classic sieve of Eratosthenes.
+ * Prime factorization of longs.
+ * <p>
+ * Small factors are found by trial division with primes from a segmented sieve
+ * of Eratosthenes. Whatever remains is tested with a deterministic
+ * Miller-Rabin test and split with Pollard's rho algorithm, so no long needs a
+ * sieve beyond {@link #TRIAL_DIVISION_LIMIT}. Programs that factor many
+ * bounded numbers can opt in to a table of smallest prime factors with
+ * {@link #setSmallestPrimeFactorLimit(int)}.
+ * <p>
+ * This class is safe for concurrent use. The known primes are kept in an
+ * immutable table. When a larger table is needed, a grown copy is published
+ * atomically, so readers never block and never see a partially grown table.
  */
 public class Primes {
 
-    private static long currentUpperbound = 10000;
-    private static int primesUpto = 100;
-    private static final ArrayList<Integer> primes = new ArrayList<>(Arrays.asList(
-            2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79, 83, 89, 97
-    ));
+    /**
+     * Trial division only uses primes below this limit.
+     */
+    static final int TRIAL_DIVISION_LIMIT = 1 << 12;
+
+    // These bases make Miller-Rabin deterministic for all n < 2^64 (J. Sinclair, 2011)
+    private static final long[] MILLER_RABIN_BASES = {2, 325, 9375, 28178, 450775, 9780504, 1795265022};
+
+    private static final PrimeTable INITIAL_TABLE = new PrimeTable(10000, 100, IntBuffer.wrap(new int[]{
+        2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79, 83, 89, 97
+    }), 25);
+
+    private static final AtomicReference<PrimeTable> table = new AtomicReference<>(INITIAL_TABLE);
+
+    // Odd numbers per sieve segment: 2^18 bits, or 32 KiB
+    private static final int SEGMENT_SIZE = 1 << 18;
+
+    // Recent factorizations of numbers that need more than trial division.
+    // Smaller numbers are cheaper to factor again than to look up.
+    private static final int CACHE_CAPACITY = 1024;
+    private static final LruCache<Long, PrimeFactorization> cache = new LruCache<>(CACHE_CAPACITY);
+    private static final LruCache<BigInteger, List<BigInteger>> bigCache = new LruCache<>(CACHE_CAPACITY);
+
+    private static volatile SmallestPrimeFactorTable spfTable = null;
+
+    // The largest upperbound of a table, as its primes must fit in an int
+    private static final long MAX_UPPERBOUND = (long) Integer.MAX_VALUE * Integer.MAX_VALUE;
+
+    private static final int TABLE_FILE_MAGIC = 0x4d495250; // "PRIM" in little-endian
+    private static final int TABLE_FILE_VERSION = 1;
+    private static final int TABLE_FILE_HEADER_SIZE = 24;
+
+    /**
+     * Precomputes the smallest prime factor of every number up to limit, so
+     * that factoring those numbers takes one lookup per prime factor. This
+     * trades memory for speed: the table takes limit bytes. A limit of 0
+     * discards the table.
+     *
+     * @param limit
+     */
+    public static void setSmallestPrimeFactorLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must be non-negative");
+        }
+
+        spfTable = limit == 0 ? null : new SmallestPrimeFactorTable(limit);
+    }
+
+    /**
+     * Returns the limit of the smallest prime factor table, or 0 if there is
+     * none.
+     *
+     * @return
+     */
+    public static int getSmallestPrimeFactorLimit() {
+        SmallestPrimeFactorTable current = spfTable;
+        return current == null ? 0 : current.limit;
+    }
+
+    /**
+     * Returns the prime factorization of n.
+     *
+     * @param n the number to factor, must be positive
+     * @return
+     */
+    public static PrimeFactorization factor(long n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be posititve");
+        }
+        if (n == 1) {
+            return PrimeFactorization.ONE;
+        }
+
+        SmallestPrimeFactorTable smallestPrimeFactors = spfTable;
+
+        if (smallestPrimeFactors != null && n <= smallestPrimeFactors.limit) {
+            return smallestPrimeFactors.factor((int) n);
+        }
+        if (n < (long) TRIAL_DIVISION_LIMIT * TRIAL_DIVISION_LIMIT) {
+            return computeFactorization(n);
+        }
+
+        PrimeFactorization factorization = cache.get(n);
+
+        if (factorization == null) {
+            factorization = computeFactorization(n);
+            cache.put(n, factorization);
+        }
+
+        return factorization;
+    }
+
+    // Pre: n > 1
+    private static PrimeFactorization computeFactorization(long n) {
+        long start = Instrumentation.start();
+        long number = n;
+        PrimeTable primeTable = tableFor(Math.min(n, (long) TRIAL_DIVISION_LIMIT * TRIAL_DIVISION_LIMIT));
+
+        // The product of the first 16 primes exceeds Long.MAX_VALUE
+        long[] primes = new long[15];
+        int[] exponents = new int[15];
+        int count = 0;
+
+        for (int i = 0; i < primeTable.count; i++) {
+            int p = primeTable.primes.get(i);
+
+            if (p >= TRIAL_DIVISION_LIMIT || (long) p * p > n) {
+                break;
+            }
+
+            if (n % p == 0) {
+                int exponent = 0;
+
+                do {
+                    exponent++;
+                    n /= p;
+                } while (n % p == 0);
+
+                primes[count] = p;
+                exponents[count] = exponent;
+                count++;
+            }
+
+            if (n == 1) {
+                break;
+            }
+        }
+
+        if (n >= (long) TRIAL_DIVISION_LIMIT * TRIAL_DIVISION_LIMIT) {
+            List<Long> largeFactors = new ArrayList<>();
+            addLargePrimeFactors(n, largeFactors);
+            Collections.sort(largeFactors);
+
+            for (long p : largeFactors) {
+                if (count > 0 && primes[count - 1] == p) {
+                    exponents[count - 1]++;
+                } else {
+                    primes[count] = p;
+                    exponents[count] = 1;
+                    count++;
+                }
+            }
+        } else if (n > 1) {
+            primes[count] = n;
+            exponents[count] = 1;
+            count++;
+        }
+
+        Instrumentation.phaseCompleted(Phase.FACTORIZATION, start, 64 - Long.numberOfLeadingZeros(number));
+        return new PrimeFactorization(number, Arrays.copyOf(primes, count), Arrays.copyOf(exponents, count));
+    }
+
+    /**
+     * Returns the prime factorizations of lo, lo + 1, ..., hi, in that order.
+     * <p>
+     * The range is sieved in segments, which is much faster than factoring
+     * each number separately. The factorizations are computed as the iterator
+     * advances.
+     *
+     * @param lo must be positive
+     * @param hi must be less than 2^62
+     * @return
+     */
+    public static Iterator<PrimeFactorization> factorRange(long lo, long hi) {
+        if (lo <= 0) {
+            throw new IllegalArgumentException("lo must be positive");
+        }
+        if (hi >= 1L << 62) {
+            throw new IllegalArgumentException("hi too large");
+        }
+        if (hi < lo) {
+            return Collections.emptyIterator();
+        }
+
+        return new RangeFactorizer(lo, hi);
+    }
 
     /**
      * Returns a list of all prime factors of n.
@@ -42,56 +239,441 @@ public class Primes {
      * @return
      */
     public static List<Long> getPrimeFactors(long n) {
-        if (n <= 0) {
+        return factor(n).getPrimeFactors();
+    }
+
+    public static List<Long> getDistinctPrimeFactors(long n) {
+        List<Long> distinct = new ArrayList<>();
+
+        for (long p : factor(n).getPrimes()) {
+            distinct.add(p);
+        }
+
+        return distinct;
+    }
+
+    /**
+     * Returns a list of all prime factors of n, in increasing order.
+     * <p>
+     * Factors may appear multiple times.
+     * Factors that do not fit in a long are found with Pollard's rho
+     * algorithm and the elliptic curve method, so this is only practical when n
+     * has at most one prime factor much larger than 2^64.
+     * <p>
+     * Recent results are cached, so the returned list may be shared and must
+     * not be modified.
+     *
+     * @param n the number to factor, must be positive
+     * @return
+     * @throws ArithmeticException if n has several prime factors that are too
+     * large to find
+     */
+    public static List<BigInteger> getPrimeFactors(BigInteger n) {
+        if (n.signum() <= 0) {
             throw new IllegalArgumentException("n must be posititve");
         }
-        if (n == 1) {
-            return Collections.<Long>emptyList();
+        if (n.bitLength() < Long.SIZE) {
+            return getPrimeFactors(n.longValue()).stream().map(BigInteger::valueOf).collect(Collectors.toList());
         }
 
-        checkUpperBound(n);
-        List<Long> factors = new ArrayList<>();
+        List<BigInteger> factors = bigCache.get(n);
 
-        for (Integer p : primes) {
-            if ((long) p * p > n) {
+        if (factors == null) {
+            factors = Collections.unmodifiableList(computePrimeFactors(n));
+            bigCache.put(n, factors);
+        }
+
+        return factors;
+    }
+
+    // Pre: n >= 2^63
+    private static List<BigInteger> computePrimeFactors(BigInteger n) {
+        long start = Instrumentation.start();
+        int bitLength = n.bitLength();
+        PrimeTable primeTable = tableFor((long) TRIAL_DIVISION_LIMIT * TRIAL_DIVISION_LIMIT);
+        List<BigInteger> factors = new ArrayList<>();
+
+        for (int i = 0; i < primeTable.count; i++) {
+            int p = primeTable.primes.get(i);
+
+            if (p >= TRIAL_DIVISION_LIMIT) {
                 break;
             }
 
-            while (n % p == 0) {
-                factors.add((long) p);
-                n /= p;
+            BigInteger factor = BigInteger.valueOf(p);
+            BigInteger[] qr = n.divideAndRemainder(factor);
+
+            while (qr[1].signum() == 0) {
+                factors.add(factor);
+                n = qr[0];
+                qr = n.divideAndRemainder(factor);
             }
+        }
 
-            if (n == 1) {
+        if (!n.equals(BigInteger.ONE)) {
+            addLargePrimeFactors(n, factors);
+            Collections.sort(factors);
+        }
+
+        Instrumentation.phaseCompleted(Phase.FACTORIZATION, start, bitLength);
+        return factors;
+    }
+
+    /**
+     * Removes all cached factorizations.
+     */
+    static void clearCache() {
+        cache.clear();
+        bigCache.clear();
+    }
+
+    public static List<BigInteger> getDistinctPrimeFactors(BigInteger n) {
+        return getPrimeFactors(n).stream().distinct().collect(Collectors.toList());
+    }
+
+    /**
+     * Returns whether n is prime.
+     * <p>
+     * This is deterministic for every long.
+     *
+     * @param n
+     * @return
+     */
+    public static boolean isPrime(long n) {
+        if (n < 2) {
+            return false;
+        }
+
+        PrimeTable primeTable = table.get();
+
+        for (int i = 0; i < primeTable.count; i++) {
+            int p = primeTable.primes.get(i);
+
+            if (p >= TRIAL_DIVISION_LIMIT) {
                 break;
             }
+            if (n % p == 0) {
+                return n == p;
+            }
+            if ((long) p * p > n) {
+                return true;
+            }
         }
 
-        if (n > 1) {
+        return isProbablePrime(n);
+    }
+
+    /**
+     * Adds the prime factors of n to factors, in no particular order.
+     * n must be odd and have no prime factors below TRIAL_DIVISION_LIMIT.
+     */
+    private static void addLargePrimeFactors(long n, List<Long> factors) {
+        if (n < (long) TRIAL_DIVISION_LIMIT * TRIAL_DIVISION_LIMIT || isProbablePrime(n)) {
             factors.add(n);
+            return;
         }
 
-        return factors;
+        long d = PollardRho.findFactor(n);
+        addLargePrimeFactors(d, factors);
+        addLargePrimeFactors(n / d, factors);
     }
-    
-    public static List<Long> getDistinctPrimeFactors(long n) {
-        return getPrimeFactors(n).stream().distinct().collect(Collectors.toList());
+
+    /**
+     * Adds the prime factors of n to factors, in no particular order.
+     * n must be odd and have no prime factors below TRIAL_DIVISION_LIMIT.
+     */
+    private static void addLargePrimeFactors(BigInteger n, List<BigInteger> factors) {
+        if (n.bitLength() < Long.SIZE) {
+            List<Long> longFactors = new ArrayList<>();
+            addLargePrimeFactors(n.longValue(), longFactors);
+
+            for (Long factor : longFactors) {
+                factors.add(BigInteger.valueOf(factor));
+            }
+        } else if (n.isProbablePrime(100)) {
+            factors.add(n);
+        } else {
+            // Pollard's rho takes about sqrt(p) steps to find p, even when n = p^k, so check for perfect powers first
+            for (int k = 2; k <= n.bitLength() / 12; k++) {
+                BigInteger root = root(n, k);
+
+                if (root.pow(k).equals(n)) {
+                    for (int i = 0; i < k; i++) {
+                        addLargePrimeFactors(root, factors);
+                    }
+                    return;
+                }
+            }
+
+            BigInteger d = PollardRho.findFactor(n);
+
+            if (d.equals(n)) {
+                d = EllipticCurveMethod.findFactor(n);
+            }
+
+            addLargePrimeFactors(d, factors);
+            addLargePrimeFactors(n.divide(d), factors);
+        }
+    }
+
+    /**
+     * Returns floor(n^(1/k)), for positive n and k.
+     */
+    private static BigInteger root(BigInteger n, int k) {
+        if (k == 2) {
+            return n.sqrt();
+        }
+
+        // Newton's method, starting from a power of two that is at least the root
+        BigInteger K = BigInteger.valueOf(k);
+        BigInteger x = BigInteger.ONE.shiftLeft((n.bitLength() + k - 1) / k);
+
+        while (true) {
+            BigInteger next = x.multiply(K.subtract(BigInteger.ONE)).add(n.divide(x.pow(k - 1))).divide(K);
+
+            if (next.compareTo(x) >= 0) {
+                return x;
+            }
+
+            x = next;
+        }
+    }
+
+    /**
+     * Miller-Rabin with bases that make it exact for longs.
+     * n must be odd and greater than 2.
+     */
+    private static boolean isProbablePrime(long n) {
+        Montgomery mont = new Montgomery(n);
+        long one = mont.one();
+        long minusOne = mont.subtract(0, one);
+
+        int s = Long.numberOfTrailingZeros(n - 1);
+        long d = (n - 1) >> s;
+
+        nextBase:
+        for (long base : MILLER_RABIN_BASES) {
+            long a = base % n;
+
+            if (a == 0) {
+                continue;
+            }
+
+            long x = mont.pow(mont.toMontgomery(a), d);
+
+            if (x == one || x == minusOne) {
+                continue;
+            }
+
+            for (int i = 1; i < s; i++) {
+                x = mont.multiply(x, x);
+
+                if (x == minusOne) {
+                    continue nextBase;
+                }
+            }
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns all primes up to and including n, in increasing order.
+     *
+     * @param n
+     * @return
+     */
+    static int[] primesUpTo(int n) {
+        PrimeTable primeTable = tableFor((long) n * n);
+        int count = primeTable.countUpTo(n);
+        int[] primes = new int[count];
+        primeTable.primes.get(0, primes, 0, count);
+        return primes;
     }
 
-    private static void checkUpperBound(long n) {
-        if (n > currentUpperbound) {
-            if (n / 2 >= currentUpperbound) {
-                initializeSmallPrimes(n);
-            } else if (currentUpperbound >= Long.MAX_VALUE / 2) {
-                initializeSmallPrimes(Long.MAX_VALUE);
+    /**
+     * Sieves all primes up to primesUpto, and writes them to the given file.
+     * The file can be loaded with {@link #loadPrimeTable(Path)} to skip the
+     * sieving for {@link #factorRange(long, long)} in later runs.
+     * <p>
+     * The format is a header of 24 bytes (the ASCII bytes "PRIM", a version
+     * number, the upperbound, primesUpto and the number of primes), followed
+     * by the primes as 4-byte integers. All values are little-endian.
+     *
+     * @param path
+     * @param primesUpto
+     * @throws IOException
+     */
+    public static void savePrimeTable(Path path, int primesUpto) throws IOException {
+        PrimeTable primeTable = tableFor((long) primesUpto * primesUpto);
+
+        int count = primeTable.countUpTo(primesUpto);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(TABLE_FILE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(TABLE_FILE_MAGIC);
+            header.putInt(TABLE_FILE_VERSION);
+            header.putLong((long) primesUpto * primesUpto);
+            header.putInt(primesUpto);
+            header.putInt(count);
+            header.flip();
+            writeFully(channel, header);
+
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+            for (int i = 0; i < count; i++) {
+                if (!chunk.hasRemaining()) {
+                    chunk.flip();
+                    writeFully(channel, chunk);
+                    chunk.clear();
+                }
+
+                chunk.putInt(primeTable.primes.get(i));
+            }
+
+            chunk.flip();
+            writeFully(channel, chunk);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Loads a prime table written by {@link #savePrimeTable(Path, int)}. The
+     * file is memory-mapped rather than read into the heap, and must not be
+     * modified while it is in use. Nothing happens if the table already
+     * contains more primes than the file.
+     * <p>
+     * Factoring a single number never uses primes beyond
+     * {@link #TRIAL_DIVISION_LIMIT}, so a loaded table only saves the sieving
+     * for {@link #factorRange(long, long)} over large ranges. Only the header
+     * and the primes at either end of the file are checked.
+     *
+     * @param path
+     * @throws IOException if the file cannot be read, is not a prime table,
+     * or its header does not match its primes
+     */
+    public static void loadPrimeTable(Path path) throws IOException {
+        MappedByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < TABLE_FILE_HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a prime table: " + path);
+            }
+
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt(0) != TABLE_FILE_MAGIC || buffer.getInt(4) != TABLE_FILE_VERSION) {
+            throw new IOException("Not a prime table: " + path);
+        }
+
+        long upperbound = buffer.getLong(8);
+        int primesUpto = buffer.getInt(16);
+        int count = buffer.getInt(20);
+
+        if (count < 0 || (long) count * Integer.BYTES != buffer.capacity() - TABLE_FILE_HEADER_SIZE) {
+            throw new IOException("Prime table is truncated: " + path);
+        }
+
+        PrimeTable loaded = new PrimeTable(upperbound, primesUpto, buffer.position(TABLE_FILE_HEADER_SIZE).slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(), count);
+        checkPrimeTable(loaded, path);
+
+        PrimeTable current = table.get();
+
+        while (loaded.upperbound > current.upperbound && !table.compareAndSet(current, loaded)) {
+            current = table.get();
+        }
+    }
+
+    // A wrong table makes factorRange silently wrong, so check that the header matches the primes.
+    // Only the header and the entries at both ends are read, so that the rest of the mapping is paged in lazily.
+    // This catches stale headers and truncated or foreign files, but not corruption in the middle.
+    private static void checkPrimeTable(PrimeTable loaded, Path path) throws IOException {
+        if (loaded.primesUpto < 0 || loaded.upperbound < 0 || loaded.upperbound > (long) loaded.primesUpto * loaded.primesUpto) {
+            throw new IOException("Prime table header is inconsistent: primes up to " + loaded.primesUpto + " can't factor numbers up to " + loaded.upperbound + ": " + path);
+        }
+
+        // The small primes must match the ones we know
+        int small = INITIAL_TABLE.countUpTo(loaded.primesUpto);
+
+        if (loaded.count < small) {
+            throw new IOException("Prime table is missing primes: " + path);
+        }
+
+        for (int i = 0; i < small; i++) {
+            if (loaded.primes.get(i) != INITIAL_TABLE.primes.get(i)) {
+                throw new IOException("Prime table contains wrong primes: " + path);
+            }
+        }
+
+        if (loaded.count == small) {
+            return;
+        }
+
+        int last = loaded.primes.get(loaded.count - 1);
+        int previous = loaded.count >= 2 ? loaded.primes.get(loaded.count - 2) : 1;
+
+        // By Bertrand's postulate, there is a prime in (primesUpto / 2, primesUpto]
+        if (last <= previous || last > loaded.primesUpto || last <= loaded.primesUpto / 2) {
+            throw new IOException("Prime table header does not match its primes: " + path);
+        }
+    }
+
+    /**
+     * Forgets all sieved primes.
+     */
+    static void resetPrimeTable() {
+        table.set(INITIAL_TABLE);
+    }
+
+    /**
+     * Returns a table that contains all primes up to at least sqrt(n), growing
+     * the shared table if necessary.
+     */
+    private static PrimeTable tableFor(long n) {
+        PrimeTable current = table.get();
+
+        while (n > current.upperbound) {
+            PrimeTable grown = initializeSmallPrimes(current, nextUpperbound(current.upperbound, n));
+
+            if (table.compareAndSet(current, grown)) {
+                current = grown;
             } else {
-                initializeSmallPrimes(2 * currentUpperbound);
+                // Another thread grew the table first, start over from its result
+                current = table.get();
             }
         }
+
+        return current;
+    }
+
+    /**
+     * Returns the upperbound to grow a table to, so that it can factor n.
+     * Pre: currentUpperbound < n <= (2^31 - 1)^2
+     */
+    static long nextUpperbound(long currentUpperbound, long n) {
+        if (n / 2 >= currentUpperbound) {
+            return n;
+        } else {
+            // Doubling may overshoot the largest table we can build, even though n itself fits
+            return Math.min(2 * currentUpperbound, MAX_UPPERBOUND);
+        }
     }
 
-    private static void initializeSmallPrimes(long upperbound) {
-        // Run the sieve of Eratosthenes
+    private static PrimeTable initializeSmallPrimes(PrimeTable known, long upperbound) {
+        SieveEvent event = new SieveEvent();
+        event.begin();
+
         long maxPrimes = (long) Math.sqrt(upperbound);
         int maxPrimesI = (int) maxPrimes;
 
@@ -99,71 +681,247 @@ public class Primes {
             throw new IllegalArgumentException("Upperbound too large.");
         }
 
-        boolean[] prime = new boolean[maxPrimesI + 1]; // prime[i] => i might still be prime
+        // Roughly n / (ln n - 1.1) primes below n, plus some slack for small n
+        int capacity = Math.max(known.count, (int) (maxPrimes / (Math.log(maxPrimes) - 1.1)) + 16);
+        int[] primes = new int[capacity];
+        known.primes.get(0, primes, 0, known.count);
+        int count = known.count;
 
-        Arrays.fill(prime, true);
+        // Sieve the odd numbers in (primesUpto, maxPrimes], one segment at a time.
+        // Segments up to sqrt(maxPrimes) go in order, as they need the primes found in earlier segments.
+        long sqrtMaxPrimes = (long) Math.sqrt(maxPrimes);
+        long low = known.primesUpto + 1 | 1;
 
-        // We already know all primes up to primesUpto. Use these to cross out non-primes in the following part.
-        for (Integer p : primes) {
-            // Multiples of p below p * p have been crossed out already
-            int start = Math.max(primesUpto + 1, p * p);
+        for (; low <= maxPrimes && low <= sqrtMaxPrimes; low += 2L * SEGMENT_SIZE) {
+            int[] segmentPrimes = sieveSegment(primes, count, low, maxPrimes);
 
-            // Skip to the next multiple of p
-            if (start % p != 0) {
-                start += p - (start % p);
+            if (count + segmentPrimes.length > primes.length) {
+                primes = Arrays.copyOf(primes, Math.max(count + segmentPrimes.length, primes.length + primes.length / 2));
             }
 
-            // Check if we're done sieving
-            if (start > prime.length) {
-                break;
+            System.arraycopy(segmentPrimes, 0, primes, count, segmentPrimes.length);
+            count += segmentPrimes.length;
+        }
+
+        // All primes up to sqrt(maxPrimes) are known now, so the remaining segments are independent
+        if (low <= maxPrimes) {
+            int[] sievingPrimes = primes;
+            int sievingCount = count;
+            long firstLow = low;
+            int segments = (int) ((maxPrimes - low) / (2L * SEGMENT_SIZE) + 1);
+
+            int[][] segmentPrimes = IntStream.range(0, segments)
+                    .parallel()
+                    .mapToObj(k -> sieveSegment(sievingPrimes, sievingCount, firstLow + 2L * SEGMENT_SIZE * k, maxPrimes))
+                    .toArray(int[][]::new);
+
+            int total = count;
+            for (int[] segment : segmentPrimes) {
+                total += segment.length;
+            }
+
+            if (total > primes.length) {
+                primes = Arrays.copyOf(primes, total);
             }
 
-            // Mark all further multiples of p as non-prime
-            for (int i = start; i < prime.length; i += p) {
-                prime[i] = false;
+            for (int[] segment : segmentPrimes) {
+                System.arraycopy(segment, 0, primes, count, segment.length);
+                count += segment.length;
             }
         }
 
-        // Continue sieving if necessary, but only with odd numbers
-        int firstPossiblePrime = primesUpto + 1;
+        PrimeTable grown = new PrimeTable(upperbound, maxPrimesI, IntBuffer.wrap(primes), count);
 
-        if (firstPossiblePrime % 2 == 0) {
-            firstPossiblePrime++;
+        if (event.shouldCommit()) {
+            event.upperbound = upperbound;
+            event.sieveSize = maxPrimesI;
+            event.primes = count;
+            event.commit();
         }
 
-        int lastValue = firstPossiblePrime;
+        return grown;
+    }
 
-        for (int p = firstPossiblePrime; p < prime.length; p += 2) {
-            lastValue = p;
+    /**
+     * Returns the primes among the odd numbers in the segment starting at low,
+     * up to maxPrimes. The first count entries of primes must hold all primes
+     * below low, or at least all primes up to the square root of the end of
+     * the segment.
+     * <p>
+     * Bit i of the segment represents low + 2i, and is set once that is known
+     * to be composite.
+     */
+    private static int[] sieveSegment(int[] primes, int count, long low, long maxPrimes) {
+        long high = Math.min(low + 2L * (SEGMENT_SIZE - 1), maxPrimes | 1); // Inclusive, odd
+        int size = (int) ((high - low) / 2 + 1);
+        long[] composite = new long[(size + Long.SIZE - 1) / Long.SIZE];
 
-            if (prime[p]) {
-                // Add p to our list of primes
-                primes.add(p);
+        // Cross out multiples of the primes we already had before this segment
+        for (int k = 1; k < count; k++) { // Skip 2
+            long p = primes[k];
 
-                // Multiples of p below p * p have been crossed out already
-                int start = p * p;
+            if (p * p > high) {
+                break;
+            }
 
-                // Check if we're done sieving (or overflowed)
-                if (start > prime.length || start < p) {
+            crossOut(composite, low, size, p, Math.max(p * p, (low + p - 1) / p * p));
+        }
+
+        // Primes found in this segment may still have multiples inside it
+        int[] found = new int[Math.max(16, (int) (2 * size / Math.log(high)))];
+        int foundCount = 0;
+
+        for (int i = 0; i < size; i++) {
+            if ((composite[i >>> 6] & (1L << i)) == 0) {
+                long p = low + 2L * i;
+
+                if (p > maxPrimes) {
                     break;
                 }
 
-                // Mark all further multiples of p as non-prime
-                for (int i = start; i < prime.length; i += p) {
-                    prime[i] = false;
+                if (foundCount == found.length) {
+                    found = Arrays.copyOf(found, found.length * 2);
+                }
+                found[foundCount++] = (int) p;
+
+                if (p * p <= high) {
+                    crossOut(composite, low, size, p, p * p);
+                }
+            }
+        }
+
+        return Arrays.copyOf(found, foundCount);
+    }
+
+    /**
+     * Marks the odd multiples of the odd prime p, starting from the first
+     * multiple that is at least start, as composite in the segment starting at
+     * low.
+     */
+    private static void crossOut(long[] composite, long low, int size, long p, long start) {
+        if (start % 2 == 0) {
+            start += p;
+        }
+
+        // Consecutive odd multiples are 2p apart, or p bits
+        for (long i = (start - low) / 2; i < size; i += p) {
+            composite[(int) (i >>> 6)] |= 1L << i;
+        }
+    }
+
+    /**
+     * The smallest prime factor of every odd number up to a limit.
+     */
+    private static class SmallestPrimeFactorTable {
+
+        final int limit;
+
+        /**
+         * smallestFactor[i] is the smallest prime factor of 2i + 1, or 0 if
+         * 2i + 1 is prime. Composites below 2^32 have a smallest prime factor
+         * below 2^16, so a char is enough.
+         */
+        final char[] smallestFactor;
+
+        SmallestPrimeFactorTable(int limit) {
+            this.limit = limit;
+            this.smallestFactor = new char[limit / 2 + 1];
+
+            for (int p = 3; (long) p * p <= limit; p += 2) {
+                if (smallestFactor[p / 2] == 0) {
+                    for (long m = (long) p * p; m <= limit; m += 2 * p) {
+                        if (smallestFactor[(int) (m / 2)] == 0) {
+                            smallestFactor[(int) (m / 2)] = (char) p;
+                        }
+                    }
                 }
             }
         }
 
-        // Add all remaining primes to our list
-        for (int p = lastValue + 2; p < prime.length; p += 2) {
-            if (prime[p]) {
-                // Add p to our list of primes
-                primes.add(p);
+        // Pre: 1 < n <= limit
+        PrimeFactorization factor(int n) {
+            long[] primes = new long[9]; // The product of the first 10 primes exceeds Integer.MAX_VALUE
+            int[] exponents = new int[9];
+            int count = 0;
+            int m = n;
+
+            if (m % 2 == 0) {
+                primes[0] = 2;
+                exponents[0] = Integer.numberOfTrailingZeros(m);
+                m >>= exponents[0];
+                count++;
             }
+
+            while (m > 1) {
+                int p = smallestFactor[m / 2];
+
+                if (p == 0) {
+                    p = m;
+                }
+
+                if (count > 0 && primes[count - 1] == p) {
+                    exponents[count - 1]++;
+                } else {
+                    primes[count] = p;
+                    exponents[count] = 1;
+                    count++;
+                }
+
+                m /= p;
+            }
+
+            return new PrimeFactorization(n, Arrays.copyOf(primes, count), Arrays.copyOf(exponents, count));
         }
+    }
+
+    /**
+     * An immutable snapshot of the known primes.
+     */
+    private static class PrimeTable {
+
+        /**
+         * Every number up to upperbound can be factored with these primes.
+         */
+        final long upperbound;
+
+        /**
+         * All primes up to primesUpto are known.
+         */
+        final int primesUpto;
 
-        primesUpto = maxPrimesI;
-        currentUpperbound = upperbound;
+        /**
+         * The known primes, in increasing order, are primes.get(0) up to
+         * primes.get(count - 1). The buffer is only read with absolute gets,
+         * and its contents are never modified after construction. It either
+         * wraps an array or maps a file written by savePrimeTable.
+         */
+        final IntBuffer primes;
+        final int count;
+
+        PrimeTable(long upperbound, int primesUpto, IntBuffer primes, int count) {
+            this.upperbound = upperbound;
+            this.primesUpto = primesUpto;
+            this.primes = primes;
+            this.count = count;
+        }
+
+        /**
+         * Returns the number of known primes that are at most n.
+         */
+        int countUpTo(int n) {
+            int lo = 0, hi = count; // primes.get(lo - 1) <= n < primes.get(hi)
+
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+
+                if (primes.get(mid) <= n) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+
+            return lo;
+        }
     }
 }
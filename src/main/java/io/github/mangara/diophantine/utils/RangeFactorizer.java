@@ -0,0 +1,145 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Factors every number in [lo, hi], in increasing order, by sieving one
+ * segment of the range at a time.
+ * <p>
+ * Each prime p up to sqrt(hi) only visits its multiples, so a segment of size
+ * s costs O(s log log hi) divisions plus O(sqrt(hi) / log(hi)) to step through
+ * the primes, instead of trial division for every number.
+ */
+class RangeFactorizer implements Iterator<PrimeFactorization> {
+
+    private static final int SEGMENT_SIZE = 1 << 14;
+    private static final int MAX_DISTINCT_PRIMES = 15; // The product of the first 16 primes exceeds Long.MAX_VALUE
+
+    private final long hi;
+    private final int[] primes;
+
+    private long next; // The next number to return
+    private long segmentStart;
+    private int segmentSize;
+
+    // For the number segmentStart + i: the part that is not factored yet, and the primes and exponents found so far.
+    // The k-th prime and exponent are at index i * MAX_DISTINCT_PRIMES + k.
+    private final long[] remaining;
+    private final long[] segmentPrimes;
+    private final int[] segmentExponents;
+    private final int[] segmentCounts;
+
+    // Pre: 1 <= lo, hi < 2^62
+    RangeFactorizer(long lo, long hi) {
+        this.hi = hi;
+
+        long sqrtHi = (long) Math.sqrt(hi);
+        while (sqrtHi * sqrtHi > hi) {
+            sqrtHi--;
+        }
+        while ((sqrtHi + 1) * (sqrtHi + 1) <= hi) {
+            sqrtHi++;
+        }
+
+        this.primes = Primes.primesUpTo((int) sqrtHi);
+        this.next = lo;
+        this.segmentStart = lo;
+        this.segmentSize = 0;
+
+        // Small ranges don't need a full segment
+        int capacity = (int) Math.min(SEGMENT_SIZE, hi - lo + 1);
+        this.remaining = new long[capacity];
+        this.segmentPrimes = new long[capacity * MAX_DISTINCT_PRIMES];
+        this.segmentExponents = new int[capacity * MAX_DISTINCT_PRIMES];
+        this.segmentCounts = new int[capacity];
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next <= hi;
+    }
+
+    @Override
+    public PrimeFactorization next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        if (next >= segmentStart + segmentSize) {
+            sieveSegment(next);
+        }
+
+        int i = (int) (next - segmentStart);
+        next++;
+
+        int count = segmentCounts[i];
+        int offset = i * MAX_DISTINCT_PRIMES;
+        long rest = remaining[i];
+
+        if (rest > 1) {
+            // Everything below sqrt(hi) has been divided out, so what remains is prime
+            segmentPrimes[offset + count] = rest;
+            segmentExponents[offset + count] = 1;
+            count++;
+        }
+
+        if (count == 0) {
+            return PrimeFactorization.ONE;
+        }
+
+        return new PrimeFactorization(segmentStart + i,
+                Arrays.copyOfRange(segmentPrimes, offset, offset + count),
+                Arrays.copyOfRange(segmentExponents, offset, offset + count));
+    }
+
+    private void sieveSegment(long start) {
+        segmentStart = start;
+        segmentSize = (int) Math.min(SEGMENT_SIZE, hi - start + 1);
+        long end = start + segmentSize - 1;
+
+        for (int i = 0; i < segmentSize; i++) {
+            remaining[i] = start + i;
+        }
+        Arrays.fill(segmentCounts, 0);
+
+        for (int p : primes) {
+            if ((long) p * p > end) {
+                break;
+            }
+
+            long firstMultiple = (start + p - 1) / p * p;
+
+            for (long m = firstMultiple; m <= end; m += p) {
+                int i = (int) (m - start);
+                int exponent = 0;
+
+                do {
+                    remaining[i] /= p;
+                    exponent++;
+                } while (remaining[i] % p == 0);
+
+                int k = i * MAX_DISTINCT_PRIMES + segmentCounts[i];
+                segmentPrimes[k] = p;
+                segmentExponents[k] = exponent;
+                segmentCounts[i]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import io.github.mangara.diophantine.instrumentation.Instrumentation;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A lazy iterator over the divisors of a factored number in increasing order.
+ * <p>
+ * Every divisor d > 1 is generated from exactly one smaller divisor, so the
+ * divisors form a tree that we traverse smallest-first with a binary heap.
+ * Write d = m p_j^c, where p_j is the largest prime that divides d and m is
+ * not divisible by p_j. The children of d are
+ * <ul>
+ * <li>d p_j, if {@literal c < e_j},</li>
+ * <li>d p_{j+1},</li>
+ * <li>m p_{j+1}, if c = 1.</li>
+ * </ul>
+ * As each divisor that is returned adds at most three others, the heap never
+ * holds more than 2r + 1 divisors, where r is the number returned so far.
+ * <p>
+ * The divisors are reported to {@link Instrumentation} once the iterator is
+ * exhausted, so iterations that stop early are not counted.
+ */
+class SortedDivisorIterator implements PrimitiveIterator.OfLong {
+
+    private final PrimeFactorization factorization;
+    // A binary heap on divisors, where largestPrimes and exponents hold j and c for each divisor
+    private long[] divisors = new long[16];
+    private int[] largestPrimes = new int[16];
+    private int[] exponents = new int[16];
+    private int size = 0;
+    private int returned = 0;
+
+    /**
+     * Creates an iterator over the positive divisors of the factored number.
+     *
+     * @param factorization
+     */
+    SortedDivisorIterator(PrimeFactorization factorization) {
+        this.factorization = factorization;
+        push(1, -1, 0);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return size > 0;
+    }
+
+    @Override
+    public long nextLong() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+
+        long d = divisors[0];
+        int j = largestPrimes[0];
+        int c = exponents[0];
+        pop();
+
+        if (j >= 0 && c < factorization.getExponent(j)) {
+            push(d * factorization.getPrime(j), j, c + 1);
+        }
+
+        if (j + 1 < factorization.getDistinctPrimeCount()) {
+            long next = factorization.getPrime(j + 1);
+            push(d * next, j + 1, 1);
+
+            if (c == 1) {
+                push(d / factorization.getPrime(j) * next, j + 1, 1);
+            }
+        }
+
+        returned++;
+
+        if (size == 0) {
+            Instrumentation.divisorsEnumerated(factorization.getNumber(), returned);
+        }
+
+        return d;
+    }
+
+    private void push(long d, int j, int c) {
+        if (size == divisors.length) {
+            divisors = Arrays.copyOf(divisors, 2 * size);
+            largestPrimes = Arrays.copyOf(largestPrimes, 2 * size);
+            exponents = Arrays.copyOf(exponents, 2 * size);
+        }
+
+        int i = size++;
+
+        while (i > 0 && divisors[(i - 1) / 2] > d) {
+            move((i - 1) / 2, i);
+            i = (i - 1) / 2;
+        }
+
+        set(i, d, j, c);
+    }
+
+    private void pop() {
+        size--;
+        long d = divisors[size];
+        int j = largestPrimes[size];
+        int c = exponents[size];
+        int i = 0;
+
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+
+            if (child + 1 < size && divisors[child + 1] < divisors[child]) {
+                child++;
+            }
+
+            if (divisors[child] >= d) {
+                break;
+            }
+
+            move(child, i);
+            i = child;
+        }
+
+        set(i, d, j, c);
+    }
+
+    private void move(int from, int to) {
+        set(to, divisors[from], largestPrimes[from], exponents[from]);
+    }
+
+    private void set(int i, long d, int j, int c) {
+        divisors[i] = d;
+        largestPrimes[i] = j;
+        exponents[i] = c;
+    }
+}
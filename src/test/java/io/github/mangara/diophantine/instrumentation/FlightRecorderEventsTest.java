@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.instrumentation;
+
+import io.github.mangara.diophantine.QuadraticSolver;
+import io.github.mangara.diophantine.quadratic.UnaryCongruenceSolver;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecorderEventsTest {
+
+    public FlightRecorderEventsTest() {
+    }
+
+    @Test
+    public void testHyperbolicEvents() throws IOException {
+        System.out.println("hyperbolicEvents");
+
+        Path file = Files.createTempFile("diophantine", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(CongruenceEvent.class);
+            recording.enable(ContinuedFractionEvent.class);
+            recording.enable(PellsFourEvent.class);
+            recording.enable(FindKEvent.class);
+            recording.start();
+
+            // x^2 - 8xy - 17y^2 + 72y - 75 = 0
+            QuadraticSolver.solve(1, -8, -17, 0, 72, -75).next();
+
+            // Other tests may have cached the roots of its congruences, so also solve one that cannot be cached yet
+            BigInteger p = BigInteger.probablePrime(62, new Random());
+            UnaryCongruenceSolver.solve(BigInteger.ONE, BigInteger.ZERO, BigInteger.valueOf(-4), p);
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            Set<String> eventNames = events.stream()
+                    .map(event -> event.getEventType().getName())
+                    .collect(Collectors.toSet());
+
+            assertTrue(eventNames.contains("io.github.mangara.diophantine.Congruence"));
+            assertTrue(eventNames.contains("io.github.mangara.diophantine.ContinuedFraction"));
+            assertTrue(eventNames.contains("io.github.mangara.diophantine.PellsFour"));
+            assertTrue(eventNames.contains("io.github.mangara.diophantine.FindK"));
+
+            RecordedEvent pells = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("io.github.mangara.diophantine.PellsFour"))
+                    .findFirst().get();
+            assertEquals("132", pells.getString("D"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.instrumentation;
+
+import io.github.mangara.diophantine.QuadraticSolver;
+import io.github.mangara.diophantine.utils.Divisors;
+import io.github.mangara.diophantine.utils.PrimeFactorization;
+import io.github.mangara.diophantine.utils.Primes;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstrumentationTest {
+
+    public InstrumentationTest() {
+    }
+
+    @AfterEach
+    public void removeListener() {
+        Instrumentation.setListener(null);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        System.out.println("disabledByDefault");
+
+        assertFalse(Instrumentation.isEnabled());
+        assertEquals(Long.MIN_VALUE, Instrumentation.start());
+    }
+
+    @Test
+    public void testHyperbolicPhases() {
+        System.out.println("hyperbolicPhases");
+
+        RecordingListener listener = new RecordingListener();
+        Instrumentation.setListener(listener);
+        assertTrue(Instrumentation.isEnabled());
+
+        // x^2 - 8xy - 17y^2 + 72y - 75 = 0
+        QuadraticSolver.solve(1, -8, -17, 0, 72, -75).next();
+
+        assertTrue(listener.phases.containsAll(EnumSet.of(Phase.CLASSIFICATION, Phase.FACTORIZATION, Phase.CONGRUENCE, Phase.CONTINUED_FRACTION, Phase.UNTRANSFORM)));
+        assertFalse(listener.congruenceRoots.isEmpty());
+        assertFalse(listener.periods.isEmpty());
+        assertFalse(listener.divisorCounts.isEmpty());
+    }
+
+    @Test
+    public void testCongruenceRoots() {
+        System.out.println("congruenceRoots");
+
+        RecordingListener listener = new RecordingListener();
+        Instrumentation.setListener(listener);
+
+        // x^2 + y^2 = 65 gives x^2 + 1 = 0 (mod 65), which has 4 roots
+        QuadraticSolver.solve(1, 0, 1, 0, 0, -65);
+
+        assertTrue(listener.congruenceRoots.contains(4));
+    }
+
+    @Test
+    public void testLazyDivisors() {
+        System.out.println("lazyDivisors");
+
+        RecordingListener listener = new RecordingListener();
+        Instrumentation.setListener(listener);
+        PrimeFactorization factorization = Primes.factor(720);
+
+        // Stopping early reports nothing
+        PrimitiveIterator.OfLong divisors = Divisors.divisorIterator(factorization);
+        divisors.nextLong();
+        assertTrue(listener.divisorCounts.isEmpty());
+
+        // Running out reports the number of positive divisors that were produced
+        divisors = Divisors.positiveAndNegativeDivisorIterator(factorization);
+        divisors.forEachRemaining((long d) -> {});
+        assertEquals(Arrays.asList(30), listener.divisorCounts);
+
+        divisors = Divisors.sortedDivisorIterator(factorization);
+        divisors.nextLong();
+        assertEquals(Arrays.asList(30), listener.divisorCounts);
+
+        divisors = Divisors.sortedPositiveAndNegativeDivisorIterator(factorization);
+        divisors.forEachRemaining((long d) -> {});
+        assertEquals(Arrays.asList(30, 30), listener.divisorCounts);
+    }
+
+    @Test
+    public void testRemoveListener() {
+        System.out.println("removeListener");
+
+        RecordingListener listener = new RecordingListener();
+        Instrumentation.setListener(listener);
+        Instrumentation.setListener(null);
+
+        QuadraticSolver.solve(1, -8, -17, 0, 72, -75).next();
+
+        assertFalse(Instrumentation.isEnabled());
+        assertTrue(listener.phases.isEmpty());
+    }
+
+    private static class RecordingListener implements SolveListener {
+
+        final Set<Phase> phases = EnumSet.noneOf(Phase.class);
+        final List<Integer> congruenceRoots = new ArrayList<>();
+        final List<Integer> periods = new ArrayList<>();
+        final List<Integer> divisorCounts = new ArrayList<>();
+
+        @Override
+        public void phaseCompleted(Phase phase, long nanos, int bitLength) {
+            assertTrue(nanos >= 0);
+            assertTrue(bitLength >= 0);
+            phases.add(phase);
+        }
+
+        @Override
+        public void congruenceSolved(BigInteger n, int roots) {
+            congruenceRoots.add(roots);
+        }
+
+        @Override
+        public void continuedFractionExpanded(BigInteger b, int period) {
+            periods.add(period);
+        }
+
+        @Override
+        public void divisorsEnumerated(BigInteger n, int divisors) {
+            divisorCounts.add(divisors);
+        }
+    }
+}
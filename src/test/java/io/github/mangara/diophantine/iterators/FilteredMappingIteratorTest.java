@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.iterators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilteredMappingIteratorTest {
+    
+    public FilteredMappingIteratorTest() {
+    }
+
+    @Test
+    public void testSkipsNull() {
+        System.out.println("skips elements that are mapped to null");
+        Iterator<Integer> numbers = Arrays.asList(1, 2, 3, 4, 5, 6, 7).iterator();
+        Iterator<String> it = new FilteredMappingIterator<>(numbers, i -> i % 3 == 0 ? null : "n" + i);
+        
+        List<String> result = new ArrayList<>();
+        it.forEachRemaining(result::add);
+        
+        assertEquals(Arrays.asList("n1", "n2", "n4", "n5", "n7"), result);
+    }
+    
+    @Test
+    public void testAllNull() {
+        System.out.println("is empty if all elements are mapped to null");
+        Iterator<Integer> numbers = Arrays.asList(1, 2, 3).iterator();
+        Iterator<String> it = new FilteredMappingIterator<>(numbers, i -> null);
+        
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, () -> it.next());
+    }
+    
+    @Test
+    public void testLazy() {
+        System.out.println("only maps elements as they are needed");
+        List<Integer> mapped = new ArrayList<>();
+        Iterator<Integer> numbers = Arrays.asList(1, 2, 3, 4, 5, 6).iterator();
+        Iterator<Integer> it = new FilteredMappingIterator<>(numbers, i -> {
+            mapped.add(i);
+            return i % 2 == 0 ? i : null;
+        });
+        
+        assertEquals(2, it.next());
+        assertEquals(Arrays.asList(1, 2), mapped);
+        assertTrue(it.hasNext());
+        assertEquals(Arrays.asList(1, 2, 3, 4), mapped);
+        assertEquals(4, it.next());
+        assertEquals(Arrays.asList(1, 2, 3, 4), mapped);
+    }
+    
+    @Test
+    public void testEmpty() {
+        System.out.println("is empty if the underlying iterator is empty");
+        Iterator<Integer> it = new FilteredMappingIterator<>(Collections.<Integer>emptyIterator(), i -> i);
+        
+        assertFalse(it.hasNext());
+    }
+}
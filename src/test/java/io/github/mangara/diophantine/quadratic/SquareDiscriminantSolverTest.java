@@ -749,4 +749,30 @@ public class SquareDiscriminantSolverTest {
         TestUtils.assertSolutionsInclude(a, b, c, d, e, f, expectedSolutions, SquareDiscriminantSolver.solve(a, b, c, d, e, f));
     }
 
+    @Test
+    public void testLargeConstantZeroA() {
+        System.out.println("65521xy + 65519x + 65497y - 2147483629 = 0 (k does not fit in a long)");
+        int a = 0, b = 65521, c = 0, d = 65519, e = 65497, f = -2147483629;
+
+        long[][] expectedSolutions = new long[][]{
+            new long[]{-1073774563, -1},
+        };
+
+        TestUtils.validateExpectedSolutions(a, b, c, d, e, f, expectedSolutions);
+        TestUtils.assertAllSolutions(a, b, c, d, e, f, expectedSolutions, SquareDiscriminantSolver.solve(a, b, c, d, e, f));
+    }
+
+    @Test
+    public void testLargeConstantNonZeroA() {
+        System.out.println("x^2 + 65537xy + 65519x + 65497y - 1507106 = 0 (4ak does not fit in a long)");
+        int a = 1, b = 65537, c = 0, d = 65519, e = 65497, f = -1507106;
+
+        long[][] expectedSolutions = new long[][]{
+            new long[]{-393207, 5},
+            new long[]{3, 5},
+        };
+
+        TestUtils.validateExpectedSolutions(a, b, c, d, e, f, expectedSolutions);
+        TestUtils.assertAllSolutions(a, b, c, d, e, f, expectedSolutions, SquareDiscriminantSolver.solve(a, b, c, d, e, f));
+    }
 }
@@ -15,9 +15,17 @@
  */
 package io.github.mangara.diophantine.quadratic;
 
+import io.github.mangara.diophantine.utils.ArithmeticProgression;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -87,6 +95,264 @@ public class UnaryCongruenceSolverTest {
         assertEquals(expectedSolutions, UnaryCongruenceSolver.solve(0, 0, 0, 4));
     }
     
+    @Test
+    public void testSolveWithPrimes() {
+        // 280 = 2^3 5 7, with an extra prime that does not divide it
+        List<BigInteger> primes = integers(2, 3, 5, 7);
+        List<BigInteger> expectedSolutions = integers(1, 29, 41, 69, 71, 99, 111, 139, 141, 169, 181, 209, 211, 239, 251, 279);
+        assertEquals(expectedSolutions, UnaryCongruenceSolver.solve(BigInteger.ONE, BigInteger.ZERO, BigInteger.ONE.negate(), BigInteger.valueOf(280), primes));
+        
+        assertEquals(integers(8, 20), UnaryCongruenceSolver.solve(BigInteger.valueOf(6), BigInteger.valueOf(14), BigInteger.valueOf(8), BigInteger.valueOf(21), integers(3, 7)));
+        assertThrows(IllegalArgumentException.class, () -> UnaryCongruenceSolver.solve(BigInteger.ONE, BigInteger.ZERO, BigInteger.ONE.negate(), BigInteger.valueOf(280), integers(2, 5)));
+    }
+    
+    @Test
+    public void testSolveComposite() {
+        // Compare against brute force
+        for (long n = 2; n < 300; n++) {
+            for (long c = -5; c <= 5; c++) {
+                List<BigInteger> expected = new ArrayList<>();
+                
+                for (long x = 0; x < n; x++) {
+                    if (Math.floorMod(3 * x * x + 5 * x + c, n) == 0) {
+                        expected.add(BigInteger.valueOf(x));
+                    }
+                }
+                
+                assertEquals(expected, UnaryCongruenceSolver.solve(3, 5, c, n), "n = " + n + ", c = " + c);
+            }
+        }
+    }
+    
+    @Test
+    public void testSolvePrimePowers() {
+        // Compare against brute force, with coefficients that are often divisible by high powers of p
+        long[] coefficients = {0, 1, -1, 2, -2, 3, -3, 4, -4, 5, 8, -8, 9, -9, 12, 16, -16, 25, -25, 27, 32, -32, 49, 64, -81};
+        long[] moduli = {2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 3, 9, 27, 81, 243, 729, 5, 25, 125, 625, 7, 49, 343, 11, 121, 1331};
+        Random rand = new Random(42);
+        
+        for (long n : moduli) {
+            for (int i = 0; i < 500; i++) {
+                long a = coefficients[rand.nextInt(coefficients.length)];
+                long b = coefficients[rand.nextInt(coefficients.length)];
+                long c = coefficients[rand.nextInt(coefficients.length)];
+                List<BigInteger> expected = new ArrayList<>();
+                
+                for (long x = 0; x < n; x++) {
+                    if (Math.floorMod(a * x * x + b * x + c, n) == 0) {
+                        expected.add(BigInteger.valueOf(x));
+                    }
+                }
+                
+                assertEquals(expected, UnaryCongruenceSolver.solve(a, b, c, n), a + "x^2 + " + b + "x + " + c + " = 0 (mod " + n + ")");
+            }
+        }
+    }
+    
+    @Test
+    public void testSolveLargePrimes() {
+        // p - 1 = 119 * 2^23
+        BigInteger p = BigInteger.valueOf(998244353);
+        BigInteger r = BigInteger.valueOf(123456789);
+        BigInteger rSquared = r.multiply(r);
+        
+        assertEquals(Arrays.asList(r, p.subtract(r)), UnaryCongruenceSolver.solve(BigInteger.ONE, BigInteger.ZERO, rSquared.negate(), p));
+        
+        BigInteger p2 = p.multiply(p);
+        assertEquals(Arrays.asList(r, p2.subtract(r)), UnaryCongruenceSolver.solve(BigInteger.ONE, BigInteger.ZERO, rSquared.negate(), p2));
+        
+        // (x - 3)(x - 7) = x^2 - 10x + 21 modulo (10^9 + 7)(10^9 + 9)
+        BigInteger q1 = BigInteger.valueOf(1000000007);
+        BigInteger q2 = BigInteger.valueOf(1000000009);
+        List<BigInteger> roots = UnaryCongruenceSolver.solve(BigInteger.ONE, BigInteger.valueOf(-10), BigInteger.valueOf(21), q1.multiply(q2));
+        assertEquals(4, roots.size());
+        assertEquals(BigInteger.valueOf(3), roots.get(0));
+        assertEquals(BigInteger.valueOf(7), roots.get(1));
+        
+        for (BigInteger x : roots) {
+            assertEquals(BigInteger.ZERO, x.multiply(x).subtract(BigInteger.TEN.multiply(x)).add(BigInteger.valueOf(21)).mod(q1.multiply(q2)));
+        }
+        
+        // -1 is not a square modulo a prime that is 3 (mod 4)
+        assertEquals(integers(), UnaryCongruenceSolver.solve(BigInteger.ONE, BigInteger.ZERO, BigInteger.ONE, q1.multiply(q2)));
+    }
+    
+    @Test
+    public void testSolveLinear() {
+        // Compare against brute force, including multiples of n for a
+        for (long n = 1; n < 60; n++) {
+            for (long b = -12; b <= 12; b++) {
+                for (long c = -12; c <= 12; c++) {
+                    List<BigInteger> expected = new ArrayList<>();
+                    
+                    for (long x = 0; x < n; x++) {
+                        if (Math.floorMod(b * x + c, n) == 0) {
+                            expected.add(BigInteger.valueOf(x));
+                        }
+                    }
+                    
+                    assertEquals(expected, UnaryCongruenceSolver.solve(0, b, c, n), b + "x + " + c + " = 0 (mod " + n + ")");
+                    assertEquals(expected, UnaryCongruenceSolver.solve(3 * n, b, c, n), 3 * n + "x^2 + " + b + "x + " + c + " = 0 (mod " + n + ")");
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testSolveLinearLarge() {
+        // Every residue modulo 2^30 is a solution, but they are not all materialized
+        BigInteger n = BigInteger.ONE.shiftLeft(30);
+        List<BigInteger> all = UnaryCongruenceSolver.solve(BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, n);
+        assertTrue(all instanceof ArithmeticProgression);
+        assertEquals(1 << 30, all.size());
+        assertEquals(BigInteger.valueOf(123456789), all.get(123456789));
+        assertTrue(all.contains(n.subtract(BigInteger.ONE)));
+        assertFalse(all.contains(n));
+        
+        // gcd(6, 10^40) = 2 divides 4, so 6x + 4 = 0 (mod 10^40) has two solutions
+        BigInteger m = BigInteger.TEN.pow(40);
+        List<BigInteger> solutions = UnaryCongruenceSolver.solve(BigInteger.ZERO, BigInteger.valueOf(6), BigInteger.valueOf(4), m);
+        assertEquals(2, solutions.size());
+        
+        for (BigInteger x : solutions) {
+            assertEquals(BigInteger.ZERO, x.multiply(BigInteger.valueOf(6)).add(BigInteger.valueOf(4)).mod(m));
+        }
+    }
+    
+    @Test
+    public void testSolveLinearHuge() {
+        // gcd(b, n) does not fit in an int, so the list view is truncated
+        BigInteger n = BigInteger.ONE.shiftLeft(40);
+        List<BigInteger> all = UnaryCongruenceSolver.solve(BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, n);
+        assertEquals(Integer.MAX_VALUE, all.size());
+        assertEquals(n, ((ArithmeticProgression) all).getCount());
+        assertTrue(all.contains(n.subtract(BigInteger.ONE)));
+        assertEquals(-1, all.indexOf(n.subtract(BigInteger.ONE)));
+        
+        // 2^39 x = 0 (mod 2^40) holds for all even x
+        BigInteger b = BigInteger.ONE.shiftLeft(39);
+        List<BigInteger> even = UnaryCongruenceSolver.solve(BigInteger.ZERO, b, BigInteger.ZERO, n);
+        assertEquals(Integer.MAX_VALUE, even.size());
+        assertEquals(b, ((ArithmeticProgression) even).getCount());
+        assertEquals(BigInteger.valueOf(246913578), even.get(123456789));
+        assertTrue(even.contains(n.subtract(BigInteger.TWO)));
+        assertFalse(even.contains(n.subtract(BigInteger.ONE)));
+        
+        // 2^39 x + 2^38 = 0 (mod 2^40) has no solutions
+        assertTrue(UnaryCongruenceSolver.solve(BigInteger.ZERO, b, BigInteger.ONE.shiftLeft(38), n).isEmpty());
+        
+        // The iterator runs past the list view
+        Iterator<BigInteger> it = UnaryCongruenceSolver.solutionIterator(n, b, BigInteger.ZERO, n);
+        
+        for (long i = 0; i < 10; i++) {
+            assertEquals(BigInteger.valueOf(2 * i), it.next());
+        }
+        
+        assertTrue(it.hasNext());
+    }
+    
+    @Test
+    public void testSolutionIterator() {
+        // The iterator produces the same solutions as the list, in some order
+        for (long n = 2; n < 300; n++) {
+            for (long a = 0; a <= 3; a++) {
+                BigInteger bigN = BigInteger.valueOf(n);
+                List<BigInteger> expected = UnaryCongruenceSolver.solve(a, 5, -4, n);
+                List<BigInteger> actual = new ArrayList<>();
+                UnaryCongruenceSolver.solutionIterator(BigInteger.valueOf(a), BigInteger.valueOf(5), BigInteger.valueOf(-4), bigN).forEachRemaining(actual::add);
+                Collections.sort(actual);
+                
+                assertEquals(expected, actual, a + "x^2 + 5x - 4 = 0 (mod " + n + ")");
+            }
+        }
+        
+        assertFalse(UnaryCongruenceSolver.solutionIterator(BigInteger.ONE, BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(21)).hasNext());
+    }
+    
+    @Test
+    public void testSolutionIteratorManyPrimes() {
+        // x^2 = 1 has 2^15 solutions modulo the product of the first 15 odd primes
+        long[] primes = {3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53};
+        BigInteger n = BigInteger.ONE;
+        List<BigInteger> primeList = new ArrayList<>();
+        
+        for (long p : primes) {
+            n = n.multiply(BigInteger.valueOf(p));
+            primeList.add(BigInteger.valueOf(p));
+        }
+        
+        Iterator<BigInteger> solutions = UnaryCongruenceSolver.solutionIterator(BigInteger.ONE, BigInteger.ZERO, BigInteger.ONE.negate(), n, primeList);
+        Set<BigInteger> seen = new HashSet<>();
+        
+        while (solutions.hasNext()) {
+            BigInteger x = solutions.next();
+            assertTrue(x.signum() >= 0 && x.compareTo(n) < 0);
+            assertEquals(BigInteger.ONE, x.multiply(x).mod(n));
+            seen.add(x);
+        }
+        
+        assertEquals(1 << primes.length, seen.size());
+        assertThrows(NoSuchElementException.class, () -> solutions.next());
+    }
+    
+    @Test
+    public void testCountRoots() {
+        // Compare against the number of solutions, with coefficients that are often divisible by high powers of p
+        long[] coefficients = {0, 1, -1, 2, -2, 3, -3, 4, -4, 5, 8, -8, 9, -9, 12, 16, -16, 25, -25, 27, 32, -32, 49, 64, -81};
+        Random rand = new Random(42);
+        
+        for (long n = 1; n < 1100; n++) {
+            for (int i = 0; i < 30; i++) {
+                long a = coefficients[rand.nextInt(coefficients.length)];
+                long b = coefficients[rand.nextInt(coefficients.length)];
+                long c = coefficients[rand.nextInt(coefficients.length)];
+                BigInteger expected = BigInteger.valueOf(UnaryCongruenceSolver.solve(a, b, c, n).size());
+                
+                assertEquals(expected, UnaryCongruenceSolver.countRoots(BigInteger.valueOf(a), BigInteger.valueOf(b), BigInteger.valueOf(c), BigInteger.valueOf(n)),
+                        a + "x^2 + " + b + "x + " + c + " = 0 (mod " + n + ")");
+            }
+        }
+        
+        // x^2 = 0 (mod 2^100) has 2^50 solutions
+        assertEquals(BigInteger.ONE.shiftLeft(50), UnaryCongruenceSolver.countRoots(BigInteger.ONE, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ONE.shiftLeft(100)));
+        
+        // -1 is not a square modulo a prime that is 3 (mod 4)
+        BigInteger q = BigInteger.valueOf(1000000007).multiply(BigInteger.valueOf(1000000009));
+        assertEquals(BigInteger.ZERO, UnaryCongruenceSolver.countRoots(BigInteger.ONE, BigInteger.ZERO, BigInteger.ONE, q));
+        assertEquals(BigInteger.valueOf(4), UnaryCongruenceSolver.countRoots(BigInteger.ONE, BigInteger.valueOf(-10), BigInteger.valueOf(21), q));
+    }
+    
+    @Test
+    public void testCachedPrimePowers() {
+        // 3x^2 + 5x - 4 modulo 2^2 3^2 7^2 11 and the moduli of its square divisors share prime powers,
+        // and coefficients that differ by multiples of n share cache entries
+        UnaryCongruenceSolver.clearCache();
+        long n = 4 * 9 * 49 * 11;
+        
+        for (long d : new long[]{1, 4, 9, 49, 36, 196, 441, 1764}) {
+            List<BigInteger> expected = new ArrayList<>();
+            
+            for (long x = 0; x < n / d; x++) {
+                if (Math.floorMod(3 * x * x + 5 * x - 4, n / d) == 0) {
+                    expected.add(BigInteger.valueOf(x));
+                }
+            }
+            
+            assertEquals(expected, UnaryCongruenceSolver.solve(3, 5, -4, n / d));
+            
+            // The same congruence with equivalent coefficients looks up its prime powers
+            long hits = UnaryCongruenceSolver.getCacheHits();
+            assertEquals(expected, UnaryCongruenceSolver.solve(3 + n, 5 - n, -4 + 2 * n, n / d));
+            assertTrue(UnaryCongruenceSolver.getCacheHits() > hits);
+        }
+        
+        // x^2 = 0 (mod 2^14) has 2^7 roots, too many to cache
+        UnaryCongruenceSolver.solve(1, 0, 0, 1 << 14);
+        long hits = UnaryCongruenceSolver.getCacheHits();
+        assertEquals(128, UnaryCongruenceSolver.solve(1, 0, 0, 1 << 14).size());
+        assertEquals(hits, UnaryCongruenceSolver.getCacheHits());
+    }
+    
     private List<BigInteger> integers(long... numbers) {
         return Arrays.stream(numbers).mapToObj(n -> BigInteger.valueOf(n)).collect(Collectors.toList());
     }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArithmeticProgressionTest {
+
+    public ArithmeticProgressionTest() {
+    }
+
+    @Test
+    public void testElements() {
+        System.out.println("elements");
+
+        List<BigInteger> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            expected.add(BigInteger.valueOf(-5 + 7 * i));
+        }
+
+        ArithmeticProgression progression = new ArithmeticProgression(BigInteger.valueOf(-5), BigInteger.valueOf(7), 10);
+        assertEquals(expected, progression);
+        assertEquals(expected.hashCode(), progression.hashCode());
+        assertEquals(Collections.emptyList(), new ArithmeticProgression(BigInteger.ONE, BigInteger.ONE, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> progression.get(10));
+        assertThrows(IllegalArgumentException.class, () -> new ArithmeticProgression(BigInteger.ONE, BigInteger.ZERO, 3));
+    }
+
+    @Test
+    public void testIndexOf() {
+        System.out.println("indexOf");
+
+        ArithmeticProgression progression = new ArithmeticProgression(BigInteger.valueOf(-5), BigInteger.valueOf(7), 10);
+
+        for (int x = -20; x < 80; x++) {
+            int expected = (x + 5) % 7 == 0 && x >= -5 && x <= 58 ? (x + 5) / 7 : -1;
+            assertEquals(expected, progression.indexOf(BigInteger.valueOf(x)), "x = " + x);
+            assertEquals(expected >= 0, progression.contains(BigInteger.valueOf(x)));
+        }
+
+        assertEquals(-1, progression.indexOf(2L));
+    }
+
+    @Test
+    public void testLargeCount() {
+        System.out.println("largeCount");
+
+        BigInteger count = BigInteger.ONE.shiftLeft(40);
+        ArithmeticProgression progression = new ArithmeticProgression(BigInteger.valueOf(3), BigInteger.TWO, count);
+        assertEquals(Integer.MAX_VALUE, progression.size());
+        assertEquals(count, progression.getCount());
+        assertEquals(BigInteger.valueOf(3 + 2L * (Integer.MAX_VALUE - 1)), progression.get(Integer.MAX_VALUE - 1));
+
+        BigInteger last = count.subtract(BigInteger.ONE).shiftLeft(1).add(BigInteger.valueOf(3));
+        assertTrue(progression.contains(last));
+        assertEquals(-1, progression.indexOf(last));
+        assertFalse(progression.contains(last.add(BigInteger.TWO)));
+
+        Iterator<BigInteger> elements = new ArithmeticProgression(BigInteger.ONE, BigInteger.ONE, BigInteger.valueOf(3)).elements();
+        assertEquals(BigInteger.ONE, elements.next());
+        assertEquals(BigInteger.TWO, elements.next());
+        assertEquals(BigInteger.valueOf(3), elements.next());
+        assertFalse(elements.hasNext());
+        assertThrows(IllegalArgumentException.class, () -> new ArithmeticProgression(BigInteger.ONE, BigInteger.ONE, BigInteger.valueOf(-1)));
+    }
+}
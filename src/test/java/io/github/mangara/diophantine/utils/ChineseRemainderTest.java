@@ -19,6 +19,7 @@ import io.github.mangara.diophantine.XYPair;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -116,4 +117,53 @@ public class ChineseRemainderTest {
         assertEquals(expResult, result);
     }
     
+    @Test
+    public void testSolveSystemLarge() {
+        System.out.println("solveSystemLarge");
+        // The product of the moduli is above 2^63
+        BigInteger p = BigInteger.valueOf(1000000007), q = BigInteger.valueOf(1000000009), r = BigInteger.valueOf(998244353);
+        BigInteger x = new BigInteger("123456789012345678901234");
+        List<XYPair> remainders = Arrays.asList(
+                new XYPair(x.mod(p), p),
+                new XYPair(x.mod(q), q),
+                new XYPair(x.mod(r), r)
+                );
+        assertEquals(x.mod(p.multiply(q).multiply(r)), ChineseRemainder.solveSystem(remainders));
+        
+        // The product is just below 2^62, with an even modulus
+        BigInteger twoPower = BigInteger.ONE.shiftLeft(31);
+        BigInteger odd = BigInteger.valueOf(2147483629);
+        BigInteger y = BigInteger.valueOf(4611685976887263123L);
+        remainders = Arrays.asList(
+                new XYPair(y.mod(twoPower), twoPower),
+                new XYPair(y.mod(odd), odd)
+                );
+        assertEquals(y.mod(twoPower.multiply(odd)), ChineseRemainder.solveSystem(remainders));
+    }
+    
+    @Test
+    public void testCombine() {
+        System.out.println("combine");
+        
+        long[][] moduli = {{1, 7}, {7, 1}, {4, 9}, {9, 4}, {8, 15}, {25, 32}, {2147483648L, 2147483629}, {1000000007, 1000000009}};
+        
+        for (long[] m : moduli) {
+            BigInteger m1 = BigInteger.valueOf(m[0]), m2 = BigInteger.valueOf(m[1]);
+            List<BigInteger> roots1 = distinct(BigInteger.ZERO, m1.subtract(BigInteger.ONE), m1.divide(BigInteger.TWO));
+            List<BigInteger> roots2 = distinct(BigInteger.ONE.mod(m2), m2.subtract(BigInteger.ONE));
+            List<BigInteger> combined = ChineseRemainder.combine(roots1, m1, roots2, m2);
+            
+            assertEquals(roots1.size() * roots2.size(), combined.size());
+            
+            for (BigInteger x : combined) {
+                assertTrue(x.signum() >= 0 && x.compareTo(m1.multiply(m2)) < 0);
+                assertTrue(roots1.contains(x.mod(m1)));
+                assertTrue(roots2.contains(x.mod(m2)));
+            }
+        }
+    }
+    
+    private List<BigInteger> distinct(BigInteger... numbers) {
+        return Arrays.stream(numbers).distinct().collect(Collectors.toList());
+    }
 }
@@ -115,6 +115,38 @@ public class ContinuedFractionTest {
         assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 3L, 4L, 5L, 3L, 4L), cf2.getCoefficients(10));
     }
     
+    @Test
+    public void testGetCoefficient() {
+        ContinuedFraction cf = new ContinuedFraction(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        assertEquals(5, cf.getCoefficientCount());
+        assertEquals(3L, cf.getCoefficient(2));
+        assertEquals(5L, cf.getCoefficient(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> cf.getCoefficient(5));
+        
+        ContinuedFraction cf2 = new ContinuedFraction(Arrays.asList(1L, 2L, 3L, 4L, 5L), 2);
+        assertEquals(5, cf2.getCoefficientCount());
+        assertArrayEquals(new long[]{1, 2, 3, 4, 5}, cf2.getCoefficientArray());
+        assertEquals(3L, cf2.getCoefficient(5));
+        assertEquals(5L, cf2.getCoefficient(1000000000));
+        
+        // The period of sqrt(9999991) is long; compare against the coefficients from the recurrence
+        //  m' = d a - m, d' = (N - m'^2) / d, a' = (a_0 + m') / d'
+        long N = 9999991;
+        ContinuedFraction root = ContinuedFraction.ofRoot(N);
+        List<Long> coefficients = root.getCoefficients(5 * root.getCoefficientCount());
+        long a0 = (long) Math.sqrt(N);
+        long m = 0, d = 1, a = a0;
+        
+        for (int i = 0; i < 5 * root.getCoefficientCount(); i++) {
+            assertEquals(a, root.getCoefficient(i), "i = " + i);
+            assertEquals(a, coefficients.get(i).longValue(), "i = " + i);
+            
+            m = d * a - m;
+            d = (N - m * m) / d;
+            a = (a0 + m) / d;
+        }
+    }
+    
     @Test
     public void testGetConvergents() {
         ContinuedFraction cf = new ContinuedFraction(Arrays.asList(3L, 2L, 5L, 1L, 2L));
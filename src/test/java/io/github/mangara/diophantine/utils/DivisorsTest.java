@@ -15,8 +15,14 @@
  */
 package io.github.mangara.diophantine.utils;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -63,4 +69,135 @@ public class DivisorsTest {
         assertEquals(expected55440, Divisors.getSquareDivisors(55440));
     }
     
+    @Test
+    public void testGetDivisorsBig() {
+        System.out.println("getDivisorsBig");
+        
+        List<BigInteger> expected170 = Arrays.asList(BigInteger.ONE, BigInteger.TWO, BigInteger.valueOf(5), BigInteger.TEN,
+                BigInteger.valueOf(17), BigInteger.valueOf(34), BigInteger.valueOf(85), BigInteger.valueOf(170));
+        assertEquals(expected170, Divisors.getDivisors(BigInteger.valueOf(170)));
+        
+        List<BigInteger> powersOfTwo = new ArrayList<>();
+        for (int i = 0; i <= 70; i++) {
+            powersOfTwo.add(BigInteger.ONE.shiftLeft(i));
+        }
+        assertEquals(powersOfTwo, Divisors.getDivisors(BigInteger.ONE.shiftLeft(70)));
+        
+        List<BigInteger> withNegatives = Divisors.getPositiveAndNegativeDivisors(BigInteger.ONE.shiftLeft(70).negate());
+        assertEquals(142, withNegatives.size());
+        assertEquals(BigInteger.ONE.shiftLeft(70).negate(), withNegatives.get(141));
+    }
+    
+    @Test
+    public void testGetSquareDivisorsBig() {
+        System.out.println("getSquareDivisorsBig");
+        
+        BigInteger m31 = BigInteger.valueOf(2147483647);
+        BigInteger m61 = BigInteger.valueOf(2305843009213693951L);
+        BigInteger n = BigInteger.valueOf(4).multiply(m31).multiply(m31).multiply(m61);
+        BigInteger four = BigInteger.valueOf(4);
+        
+        assertEquals(Arrays.asList(BigInteger.ONE, four, m31.multiply(m31), four.multiply(m31).multiply(m31)), Divisors.getSquareDivisors(n));
+    }
+    
+    @Test
+    public void testGetDivisorsOfFactorization() {
+        System.out.println("getDivisorsOfFactorization");
+        
+        Iterator<PrimeFactorization> range = Primes.factorRange(1, 1000);
+        
+        for (long n = 1; n <= 1000; n++) {
+            PrimeFactorization f = range.next();
+            assertEquals(Divisors.getDivisors(n), Divisors.getDivisors(f));
+            assertEquals(Divisors.getSquareDivisors(n), Divisors.getSquareDivisors(f));
+        }
+    }
+
+    @Test
+    public void testDivisorIterator() {
+        System.out.println("divisorIterator");
+        
+        Iterator<PrimeFactorization> range = Primes.factorRange(1, 1000);
+        
+        for (long n = 1; n <= 1000; n++) {
+            PrimeFactorization f = range.next();
+            assertEquals(sorted(Divisors.getDivisors(n)), sorted(toList(Divisors.divisorIterator(f))));
+            assertEquals(sorted(Divisors.getPositiveAndNegativeDivisors(n)), sorted(toList(Divisors.positiveAndNegativeDivisorIterator(f))));
+        }
+        
+        assertEquals(Arrays.asList(1L, -1L, 2L, -2L, 3L, -3L, 6L, -6L, 9L, -9L, 18L, -18L), toList(Divisors.positiveAndNegativeDivisorIterator(Primes.factor(18))));
+        
+        // 2^62 has 63 divisors, the last of which is the number itself
+        PrimitiveIterator.OfLong powersOfTwo = Divisors.divisorIterator(Primes.factor(1L << 62));
+        for (int i = 0; i <= 62; i++) {
+            assertEquals(1L << i, powersOfTwo.nextLong());
+        }
+        assertFalse(powersOfTwo.hasNext());
+        assertThrows(NoSuchElementException.class, () -> powersOfTwo.nextLong());
+    }
+    
+    @Test
+    public void testSortedDivisorIterator() {
+        System.out.println("sortedDivisorIterator");
+        
+        Iterator<PrimeFactorization> range = Primes.factorRange(1, 2000);
+        
+        for (long n = 1; n <= 2000; n++) {
+            PrimeFactorization f = range.next();
+            assertEquals(sorted(Divisors.getDivisors(n)), toList(Divisors.sortedDivisorIterator(f)));
+        }
+        
+        assertEquals(Arrays.asList(1L, -1L, 2L, -2L, 3L, -3L, 4L, -4L, 6L, -6L, 12L, -12L), toList(Divisors.sortedPositiveAndNegativeDivisorIterator(Primes.factor(12))));
+        
+        // 963761198400 has 6720 divisors
+        long highlyComposite = 963761198400L;
+        List<Long> divisors = sorted(Divisors.getDivisors(highlyComposite));
+        assertEquals(divisors, toList(Divisors.sortedDivisorIterator(Primes.factor(highlyComposite))));
+        
+        PrimitiveIterator.OfLong it = Divisors.sortedDivisorIterator(Primes.factor(Long.MAX_VALUE));
+        assertEquals(1L, it.nextLong());
+        assertEquals(7L, it.nextLong());
+        assertEquals(49L, it.nextLong());
+        assertEquals(73L, it.nextLong());
+    }
+    
+    @Test
+    public void testMultiplicativeFunctions() {
+        System.out.println("multiplicativeFunctions");
+        
+        Iterator<PrimeFactorization> range = Primes.factorRange(1, 2000);
+        
+        for (long n = 1; n <= 2000; n++) {
+            PrimeFactorization f = range.next();
+            List<Long> divisors = Divisors.getDivisors(n);
+            List<Long> squareDivisors = Divisors.getSquareDivisors(n);
+            
+            assertEquals(divisors.size(), Divisors.countDivisors(f));
+            assertEquals(divisors.stream().mapToLong(d -> d).sum(), Divisors.sumDivisors(f));
+            assertEquals(squareDivisors.size(), Divisors.countSquareDivisors(f));
+            assertEquals(Collections.max(squareDivisors), Divisors.getLargestSquareDivisor(f));
+        }
+        
+        assertEquals(6720, Divisors.countDivisors(963761198400L));
+        assertEquals(56, Divisors.sumDivisors(28));
+        assertEquals(24, Divisors.countSquareDivisors(963761198400L));
+        assertEquals(144, Divisors.getLargestSquareDivisor(55440));
+        assertEquals(49, Divisors.getLargestSquareDivisor(Long.MAX_VALUE));
+        
+        // sigma(2^62) = 2^63 - 1
+        assertEquals(Long.MAX_VALUE, Divisors.sumDivisors(1L << 62));
+        assertThrows(ArithmeticException.class, () -> Divisors.sumDivisors(Long.MAX_VALUE - 1));
+    }
+    
+    private static List<Long> toList(PrimitiveIterator.OfLong it) {
+        List<Long> list = new ArrayList<>();
+        it.forEachRemaining((long d) -> list.add(d));
+        return list;
+    }
+    
+    private static List<Long> sorted(List<Long> list) {
+        List<Long> copy = new ArrayList<>(list);
+        Collections.sort(copy);
+        return copy;
+    }
 }
@@ -66,4 +66,24 @@ public class ExtendedEuclideanTest {
         assertEquals(expResult, result);
     }
     
+    @Test
+    public void testModInverse() {
+        System.out.println("modInverse");
+        
+        for (long n = 1; n < 100; n++) {
+            for (long a = -2 * n; a < 2 * n; a++) {
+                if (BigInteger.valueOf(a).gcd(BigInteger.valueOf(n)).equals(BigInteger.ONE)) {
+                    long inverse = ExtendedEuclidean.modInverse(a, n);
+                    assertTrue(0 <= inverse && inverse < n);
+                    assertEquals(1 % n, Math.floorMod(a * inverse, n));
+                } else {
+                    final long finalA = a, finalN = n;
+                    assertThrows(ArithmeticException.class, () -> ExtendedEuclidean.modInverse(finalA, finalN));
+                }
+            }
+        }
+        
+        long p = 9223372036854775783L;
+        assertEquals(BigInteger.valueOf(123456789).modInverse(BigInteger.valueOf(p)).longValue(), ExtendedEuclidean.modInverse(123456789, p));
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HenselTest {
+
+    public HenselTest() {
+    }
+
+    @Test
+    public void testLiftRoot() {
+        System.out.println("liftRoot");
+
+        // Prime powers below 2^63 use long arithmetic, the others BigInteger
+        int[][] primePowers = {{2, 1}, {2, 5}, {2, 62}, {2, 63}, {2, 100}, {3, 39}, {3, 40}, {3, 60}, {5, 27}, {7, 22}, {101, 9}, {101, 10}};
+        Random rand = new Random(42);
+
+        for (int[] pk : primePowers) {
+            BigInteger p = BigInteger.valueOf(pk[0]);
+            BigInteger n = p.pow(pk[1]);
+
+            for (int i = 0; i < 100; i++) {
+                BigInteger a = BigInteger.valueOf(rand.nextInt(2001) - 1000);
+                BigInteger b = BigInteger.valueOf(rand.nextInt(2001) - 1000);
+                BigInteger c = BigInteger.valueOf(rand.nextInt(2001) - 1000);
+
+                for (BigInteger x = BigInteger.ZERO; x.compareTo(p) < 0; x = x.add(BigInteger.ONE)) {
+                    boolean root = a.multiply(x).add(b).multiply(x).add(c).mod(p).signum() == 0;
+                    boolean simple = a.multiply(x).shiftLeft(1).add(b).mod(p).signum() != 0;
+
+                    if (root && simple) {
+                        BigInteger y = Hensel.liftRoot(a, b, c, x, n);
+                        String message = a + "x^2 + " + b + "x + " + c + " mod " + p + "^" + pk[1];
+
+                        assertTrue(y.signum() >= 0 && y.compareTo(n) < 0, message);
+                        assertEquals(x, y.mod(p), message);
+                        assertEquals(BigInteger.ZERO, a.multiply(y).add(b).multiply(y).add(c).mod(n), message);
+                    }
+                }
+            }
+        }
+    }
+}
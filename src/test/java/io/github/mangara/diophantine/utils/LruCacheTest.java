@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LruCacheTest {
+
+    public LruCacheTest() {
+    }
+
+    @Test
+    public void testEviction() {
+        System.out.println("eviction");
+
+        LruCache<Integer, String> cache = new LruCache<>(2);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        assertEquals("one", cache.get(1)); // 2 is now the least recently used
+
+        cache.put(3, "three");
+        assertEquals(2, cache.size());
+        assertNull(cache.get(2));
+        assertEquals("one", cache.get(1));
+        assertEquals("three", cache.get(3));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testSegments() {
+        System.out.println("segments");
+
+        // Large caches are split into segments, but still stay within their capacity
+        LruCache<Long, Long> cache = new LruCache<>(1024);
+
+        for (long i = 0; i < 10000; i++) {
+            cache.put(i, i * i);
+            assertEquals(i * i, cache.get(i));
+        }
+
+        assertTrue(cache.size() <= 1024);
+        assertTrue(cache.size() > 512);
+
+        for (long i = 9990; i < 10000; i++) {
+            assertEquals(i * i, cache.get(i));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModularSqrtTest {
+
+    public ModularSqrtTest() {
+    }
+
+    @Test
+    public void testSmallPrimes() {
+        System.out.println("smallPrimes");
+
+        for (int p : Primes.primesUpTo(300)) {
+            long[] smallestRoot = new long[p];
+            Arrays.fill(smallestRoot, -1);
+
+            for (long x = p - 1; x >= 0; x--) {
+                smallestRoot[(int) (x * x % p)] = x;
+            }
+
+            for (long a = -p; a < 2 * p; a++) {
+                long expected = smallestRoot[(int) Math.floorMod(a, p)];
+                BigInteger bigA = BigInteger.valueOf(a), bigP = BigInteger.valueOf(p);
+
+                assertEquals(expected >= 0, ModularSqrt.isQuadraticResidue(a, p), a + " mod " + p);
+                assertEquals(expected >= 0, ModularSqrt.isQuadraticResidue(bigA, bigP), a + " mod " + p);
+                assertEquals(expected, ModularSqrt.sqrtModPrime(a, p), a + " mod " + p);
+                assertEquals(expected < 0 ? null : BigInteger.valueOf(expected), ModularSqrt.sqrtModPrime(bigA, bigP), a + " mod " + p);
+            }
+        }
+    }
+
+    @Test
+    public void testLargePrimes() {
+        System.out.println("largePrimes");
+
+        // These cover p = 3 (mod 4), Tonelli-Shanks, and Cipolla for primes with many factors 2 in p - 1
+        long[] primes = {1000000007L, 1000000009L, 65537, 998244353, 469762049, 3221225473L, 2305843009213693951L, 9223372036854775783L};
+        Random rand = new Random(42);
+
+        for (long p : primes) {
+            BigInteger bigP = BigInteger.valueOf(p);
+
+            for (int i = 0; i < 100; i++) {
+                BigInteger r = BigInteger.valueOf(Math.floorMod(rand.nextLong(), p));
+                BigInteger square = r.multiply(r).mod(bigP);
+                long expected = r.min(bigP.subtract(r)).mod(bigP).longValue();
+
+                assertTrue(ModularSqrt.isQuadraticResidue(square.longValue(), p));
+                assertEquals(expected, ModularSqrt.sqrtModPrime(square.longValue(), p));
+            }
+
+            // Exactly half of the non-zero residues are squares, so some of these are not
+            int nonResidues = 0;
+
+            for (long a = 1; a <= 20; a++) {
+                if (!ModularSqrt.isQuadraticResidue(a, p)) {
+                    nonResidues++;
+                    assertEquals(-1, ModularSqrt.sqrtModPrime(a, p));
+                }
+            }
+
+            assertTrue(nonResidues > 0);
+        }
+    }
+
+    @Test
+    public void testBigPrimes() {
+        System.out.println("bigPrimes");
+
+        List<BigInteger> primes = new ArrayList<>();
+        // 3 (mod 4)
+        primes.add(BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE));
+
+        // 5 (mod 8), so Tonelli-Shanks
+        BigInteger p = BigInteger.ONE.shiftLeft(80).nextProbablePrime();
+        while (p.mod(BigInteger.valueOf(8)).intValue() != 5) {
+            p = p.nextProbablePrime();
+        }
+        primes.add(p);
+
+        // k 2^100 + 1, so Cipolla
+        BigInteger k = BigInteger.ONE;
+        while (!k.shiftLeft(100).add(BigInteger.ONE).isProbablePrime(100)) {
+            k = k.add(BigInteger.TWO);
+        }
+        primes.add(k.shiftLeft(100).add(BigInteger.ONE));
+
+        Random rand = new Random(42);
+
+        for (BigInteger q : primes) {
+            for (int i = 0; i < 20; i++) {
+                BigInteger r = new BigInteger(q.bitLength() + 8, rand).mod(q);
+                BigInteger square = r.multiply(r).mod(q);
+
+                assertTrue(ModularSqrt.isQuadraticResidue(square, q));
+                assertEquals(r.min(q.subtract(r)), ModularSqrt.sqrtModPrime(square, q));
+                assertEquals(ModularSqrt.isQuadraticResidue(square.add(BigInteger.ONE), q), ModularSqrt.sqrtModPrime(square.add(BigInteger.ONE), q) != null);
+            }
+        }
+    }
+
+    @Test
+    public void testSqrtModPrimePower() {
+        System.out.println("sqrtModPrimePower");
+
+        int[][] primePowers = {{2, 1}, {2, 2}, {2, 3}, {2, 4}, {2, 7}, {2, 10}, {3, 1}, {3, 2}, {3, 5}, {5, 4}, {7, 3}, {11, 2}, {13, 2}};
+
+        for (int[] pk : primePowers) {
+            int p = pk[0], k = pk[1];
+            int n = BigInteger.valueOf(p).pow(k).intValueExact();
+
+            for (long a = 0; a < n; a++) {
+                List<BigInteger> expected = new ArrayList<>();
+
+                for (long x = 0; x < n; x++) {
+                    if ((x * x - a) % n == 0) {
+                        expected.add(BigInteger.valueOf(x));
+                    }
+                }
+
+                assertEquals(expected, ModularSqrt.sqrtModPrimePower(BigInteger.valueOf(a), BigInteger.valueOf(p), k), a + " mod " + p + "^" + k);
+            }
+        }
+
+        // 2^2 (1 + 2^3 u) has 2 * 4 roots modulo 2^70
+        BigInteger a = BigInteger.valueOf(4 * 17);
+        List<BigInteger> roots = ModularSqrt.sqrtModPrimePower(a, BigInteger.TWO, 70);
+        assertEquals(8, roots.size());
+
+        for (BigInteger x : roots) {
+            assertEquals(BigInteger.ZERO, x.multiply(x).subtract(a).mod(BigInteger.ONE.shiftLeft(70)));
+        }
+    }
+
+    @Test
+    public void testJacobiSymbol() {
+        System.out.println("jacobiSymbol");
+
+        // For primes, compare against Euler's criterion
+        for (long p = 3; p < 200; p += 2) {
+            if (!BigInteger.valueOf(p).isProbablePrime(50)) {
+                continue;
+            }
+
+            for (long a = -p; a < 2 * p; a++) {
+                BigInteger euler = BigInteger.valueOf(a).modPow(BigInteger.valueOf((p - 1) / 2), BigInteger.valueOf(p));
+                int expected = euler.signum() == 0 ? 0 : (euler.equals(BigInteger.ONE) ? 1 : -1);
+                assertEquals(expected, ModularSqrt.jacobiSymbol(a, p), "(" + a + " / " + p + ")");
+            }
+        }
+
+        // For composites, the symbol is multiplicative in n
+        for (long a = -50; a < 50; a++) {
+            assertEquals(ModularSqrt.jacobiSymbol(a, 3) * ModularSqrt.jacobiSymbol(a, 5) * ModularSqrt.jacobiSymbol(a, 7),
+                    ModularSqrt.jacobiSymbol(a, 105));
+            assertEquals(ModularSqrt.jacobiSymbol(a, 105), ModularSqrt.jacobiSymbol(BigInteger.valueOf(a), BigInteger.valueOf(105)));
+        }
+
+        // Large moduli, where the BigInteger version can't delegate right away
+        BigInteger p = BigInteger.TWO.pow(127).subtract(BigInteger.ONE);
+        BigInteger r = BigInteger.TWO.pow(61).subtract(BigInteger.ONE);
+        Random rand = new Random(42);
+
+        for (int i = 0; i < 100; i++) {
+            BigInteger a = new BigInteger(130, rand);
+            BigInteger euler = a.modPow(p.shiftRight(1), p);
+            int expected = euler.signum() == 0 ? 0 : (euler.equals(BigInteger.ONE) ? 1 : -1);
+            assertEquals(expected, ModularSqrt.jacobiSymbol(a, p));
+            assertEquals(expected * ModularSqrt.jacobiSymbol(a, r), ModularSqrt.jacobiSymbol(a, p.multiply(r)));
+        }
+    }
+}
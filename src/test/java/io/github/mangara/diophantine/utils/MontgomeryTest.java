@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MontgomeryTest {
+
+    public MontgomeryTest() {
+    }
+
+    @Test
+    public void testConstructor() {
+        System.out.println("constructor");
+
+        assertThrows(IllegalArgumentException.class, () -> new Montgomery(1));
+        assertThrows(IllegalArgumentException.class, () -> new Montgomery(10));
+        assertThrows(IllegalArgumentException.class, () -> new Montgomery(-7));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        System.out.println("roundTrip");
+
+        long[] moduli = {3, 7, 1000000007L, 4611686018427387903L, Long.MAX_VALUE};
+
+        for (long n : moduli) {
+            Montgomery mont = new Montgomery(n);
+
+            assertEquals(1 % n, mont.fromMontgomery(mont.one()));
+            assertEquals(0, mont.fromMontgomery(mont.toMontgomery(n)));
+            assertEquals(n - 1, mont.fromMontgomery(mont.toMontgomery(-1)));
+            assertEquals(Math.floorMod(-123456789L, n), mont.fromMontgomery(mont.toMontgomery(-123456789L)));
+        }
+    }
+
+    @Test
+    public void testArithmetic() {
+        System.out.println("arithmetic");
+
+        Random rand = new Random(42);
+        long[] moduli = {3, 9, 65537, 1000000007L, 1000000007L * 1000000009L, 9223372036854775783L, Long.MAX_VALUE};
+
+        for (long n : moduli) {
+            Montgomery mont = new Montgomery(n);
+            BigInteger bigN = BigInteger.valueOf(n);
+
+            for (int i = 0; i < 1000; i++) {
+                long a = Math.floorMod(rand.nextLong(), n);
+                long b = Math.floorMod(rand.nextLong(), n);
+                long e = rand.nextInt(1000);
+                long aM = mont.toMontgomery(a);
+                long bM = mont.toMontgomery(b);
+                BigInteger bigA = BigInteger.valueOf(a);
+                BigInteger bigB = BigInteger.valueOf(b);
+
+                assertEquals(bigA.multiply(bigB).mod(bigN).longValue(), mont.fromMontgomery(mont.multiply(aM, bM)));
+                assertEquals(bigA.add(bigB).mod(bigN).longValue(), mont.fromMontgomery(mont.add(aM, bM)));
+                assertEquals(bigA.subtract(bigB).mod(bigN).longValue(), mont.fromMontgomery(mont.subtract(aM, bM)));
+                assertEquals(bigA.modPow(BigInteger.valueOf(e), bigN).longValue(), mont.fromMontgomery(mont.pow(aM, e)));
+            }
+        }
+    }
+}
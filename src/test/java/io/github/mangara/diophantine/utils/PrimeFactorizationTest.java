@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022 Sander Verdonschot <sander.verdonschot at gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.mangara.diophantine.utils;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrimeFactorizationTest {
+
+    public PrimeFactorizationTest() {
+    }
+
+    @Test
+    public void testFactor() {
+        System.out.println("factor");
+
+        PrimeFactorization one = Primes.factor(1);
+        assertEquals(1, one.getNumber());
+        assertEquals(0, one.getDistinctPrimeCount());
+        assertEquals("1", one.toString());
+
+        PrimeFactorization f = Primes.factor(55440);
+        assertEquals(55440, f.getNumber());
+        assertArrayEquals(new long[]{2, 3, 5, 7, 11}, f.getPrimes());
+        assertArrayEquals(new int[]{4, 2, 1, 1, 1}, f.getExponents());
+        assertEquals(3, f.getPrime(1));
+        assertEquals(2, f.getExponent(1));
+        assertEquals("2^4 * 3^2 * 5 * 7 * 11", f.toString());
+
+        PrimeFactorization large = Primes.factor(4099L * 4099 * 1000000007L);
+        assertArrayEquals(new long[]{4099, 1000000007L}, large.getPrimes());
+        assertArrayEquals(new int[]{2, 1}, large.getExponents());
+
+        PrimeFactorization square = Primes.factor(4099L * 4099 * 4099 * 4099 * 4099);
+        assertArrayEquals(new long[]{4099}, square.getPrimes());
+        assertArrayEquals(new int[]{5}, square.getExponents());
+
+        assertThrows(IllegalArgumentException.class, () -> Primes.factor(0));
+    }
+
+    @Test
+    public void testCache() {
+        System.out.println("cache");
+
+        Primes.clearCache();
+        long n = 1000000007L * 1000000009L;
+        PrimeFactorization first = Primes.factor(n);
+        assertSame(first, Primes.factor(n));
+
+        BigInteger big = BigInteger.valueOf(n).pow(2);
+        List<BigInteger> bigFactors = Primes.getPrimeFactors(big);
+        assertSame(bigFactors, Primes.getPrimeFactors(big));
+    }
+
+    @Test
+    public void testFactorRange() {
+        System.out.println("factorRange");
+
+        assertFalse(Primes.factorRange(10, 9).hasNext());
+        assertThrows(IllegalArgumentException.class, () -> Primes.factorRange(0, 10));
+
+        // Several segments, starting at 1
+        Iterator<PrimeFactorization> range = Primes.factorRange(1, 40000);
+        for (long n = 1; n <= 40000; n++) {
+            assertEquals(Primes.factor(n).toString(), range.next().toString(), Long.toString(n));
+        }
+        assertFalse(range.hasNext());
+        assertThrows(NoSuchElementException.class, () -> range.next());
+
+        // Large values, including a prime square
+        long lo = 1000000007L * 1000000007L - 50;
+        Iterator<PrimeFactorization> large = Primes.factorRange(lo, lo + 100);
+        for (long n = lo; n <= lo + 100; n++) {
+            PrimeFactorization f = large.next();
+            assertEquals(n, f.getNumber());
+            assertEquals(Primes.factor(n).toString(), f.toString(), Long.toString(n));
+        }
+    }
+
+    @Test
+    public void testGetPrimeFactors() {
+        System.out.println("getPrimeFactors");
+
+        assertEquals(Arrays.asList(), Primes.factor(1).getPrimeFactors());
+        assertEquals(Arrays.asList(2L, 2L, 2L, 3L), Primes.factor(24).getPrimeFactors());
+    }
+
+    @Test
+    public void testGetRadical() {
+        System.out.println("getRadical");
+
+        assertEquals(1, Primes.factor(1).getRadical());
+        assertEquals(6, Primes.factor(24).getRadical());
+        assertEquals(2310, Primes.factor(55440).getRadical());
+        assertEquals(Long.MAX_VALUE / 7, Primes.factor(Long.MAX_VALUE).getRadical());
+    }
+
+    @Test
+    public void testGetDivisorCount() {
+        System.out.println("getDivisorCount");
+
+        assertEquals(1, Primes.factor(1).getDivisorCount());
+        assertEquals(2, Primes.factor(10111).getDivisorCount());
+        assertEquals(120, Primes.factor(55440).getDivisorCount());
+
+        for (int n = 1; n < 1000; n++) {
+            assertEquals(Primes.factor(n).getDivisors().length, Primes.factor(n).getDivisorCount());
+        }
+    }
+
+    @Test
+    public void testGetDivisors() {
+        System.out.println("getDivisors");
+
+        assertArrayEquals(new long[]{1}, Primes.factor(1).getDivisors());
+        assertArrayEquals(new long[]{1, 2, 4, 3, 6, 12}, Primes.factor(12).getDivisors());
+        assertArrayEquals(new long[]{1, 4, 16, 9, 36, 144}, Primes.factor(55440).getSquareDivisors());
+        assertArrayEquals(new long[]{1}, Primes.factor(170).getSquareDivisors());
+    }
+
+    @Test
+    public void testEquals() {
+        System.out.println("equals");
+
+        assertEquals(Primes.factor(55440), Primes.factor(55440));
+        assertEquals(Primes.factor(55440).hashCode(), Primes.factor(55440).hashCode());
+        assertNotEquals(Primes.factor(55440), Primes.factor(55441));
+    }
+}
@@ -15,8 +15,20 @@
  */
 package io.github.mangara.diophantine.utils;
 
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class PrimesTest {
@@ -35,6 +47,203 @@ public class PrimesTest {
         assertEquals(Arrays.asList(10111L), Primes.getPrimeFactors(10111));
     }
     
+    @Test
+    public void testGetPrimeFactorsLarge() {
+        System.out.println("getPrimeFactorsLarge");
+        
+        assertEquals(Arrays.asList(4099L, 4099L), Primes.getPrimeFactors(4099L * 4099L));
+        assertEquals(Arrays.asList(1000000007L, 1000000009L), Primes.getPrimeFactors(1000000007L * 1000000009L));
+        assertEquals(Arrays.asList(2147483629L, 2147483647L), Primes.getPrimeFactors(2147483629L * 2147483647L));
+        assertEquals(Arrays.asList(3L, 4099L, 4099L, 4099L, 4099L), Primes.getPrimeFactors(3L * 4099 * 4099 * 4099 * 4099));
+        assertEquals(Arrays.asList(7L, 7L, 73L, 127L, 337L, 92737L, 649657L), Primes.getPrimeFactors(Long.MAX_VALUE));
+        assertEquals(Arrays.asList(9223372036854775783L), Primes.getPrimeFactors(9223372036854775783L));
+        assertEquals(Arrays.asList(1009L, 1009L, 1009L, 1009L, 1009L, 1009L), Primes.getPrimeFactors(1009L * 1009 * 1009 * 1009 * 1009 * 1009));
+        // Strong pseudoprime to bases 2 through 23
+        assertEquals(Arrays.asList(149491L, 747451L, 34233211L), Primes.getPrimeFactors(3825123056546413051L));
+    }
+    
+    @Test
+    public void testGetPrimeFactorsBig() {
+        System.out.println("getPrimeFactorsBig");
+        
+        BigInteger m31 = BigInteger.valueOf(2147483647);
+        BigInteger m61 = BigInteger.valueOf(2305843009213693951L);
+        BigInteger two = BigInteger.TWO, three = BigInteger.valueOf(3);
+        
+        assertEquals(Arrays.asList(two, three), Primes.getPrimeFactors(BigInteger.valueOf(6)));
+        assertEquals(Arrays.asList(two, two, three, m31, m31, m61), Primes.getPrimeFactors(BigInteger.valueOf(12).multiply(m31).multiply(m31).multiply(m61)));
+        assertEquals(Arrays.asList(m61, m61), Primes.getPrimeFactors(m61.multiply(m61)));
+        assertEquals(Arrays.asList(m61, m61, m61), Primes.getPrimeFactors(m61.pow(3)));
+        assertEquals(Arrays.asList(BigInteger.valueOf(1000000007), m61), Primes.getPrimeFactors(m61.multiply(BigInteger.valueOf(1000000007))));
+        assertEquals(Arrays.asList(two, three, m61), Primes.getDistinctPrimeFactors(BigInteger.valueOf(36).multiply(m61).multiply(m61)));
+        assertThrows(IllegalArgumentException.class, () -> Primes.getPrimeFactors(BigInteger.ZERO));
+    }
+    
+    @Test
+    public void testGetPrimeFactorsEllipticCurve() {
+        System.out.println("getPrimeFactorsEllipticCurve");
+        
+        // Both factors are far too large for Pollard's rho
+        BigInteger p = BigInteger.ONE.shiftLeft(62).subtract(BigInteger.valueOf(57));
+        BigInteger q = BigInteger.valueOf(4611686018427388039L);
+        assertEquals(Arrays.asList(p, q), Primes.getPrimeFactors(p.multiply(q)));
+        
+        // The seventh Fermat number, 2^128 + 1
+        BigInteger f7 = BigInteger.ONE.shiftLeft(128).add(BigInteger.ONE);
+        assertEquals(Arrays.asList(BigInteger.valueOf(59649589127497217L), new BigInteger("5704689200685129054721")), Primes.getPrimeFactors(f7));
+    }
+    
+    @Test
+    public void testPrimesUpTo() {
+        System.out.println("primesUpTo");
+        
+        assertArrayEquals(new int[]{2, 3, 5, 7}, Primes.primesUpTo(10));
+        assertArrayEquals(new int[]{2, 3, 5, 7, 11}, Primes.primesUpTo(11));
+        
+        // Compare against a plain sieve, across several segments
+        int n = 3_000_000;
+        boolean[] composite = new boolean[n + 1];
+        List<Integer> expected = new ArrayList<>();
+        
+        for (int i = 2; i <= n; i++) {
+            if (!composite[i]) {
+                expected.add(i);
+                
+                for (long j = (long) i * i; j <= n; j += i) {
+                    composite[(int) j] = true;
+                }
+            }
+        }
+        
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), Primes.primesUpTo(n));
+        assertEquals(664579, Primes.primesUpTo(10_000_000).length);
+    }
+    
+    @Test
+    public void testSmallestPrimeFactorTable() {
+        System.out.println("smallestPrimeFactorTable");
+        
+        int limit = 1_000_000;
+        List<PrimeFactorization> expected = new ArrayList<>();
+        
+        for (int n = 1; n <= limit; n += 7) {
+            expected.add(Primes.factor(n));
+        }
+        expected.add(Primes.factor(limit));
+        expected.add(Primes.factor(999983)); // Largest prime below the limit
+        expected.add(Primes.factor(524288)); // 2^19
+        
+        try {
+            Primes.setSmallestPrimeFactorLimit(limit);
+            assertEquals(limit, Primes.getSmallestPrimeFactorLimit());
+            
+            for (PrimeFactorization f : expected) {
+                PrimeFactorization actual = Primes.factor(f.getNumber());
+                assertArrayEquals(f.getPrimes(), actual.getPrimes(), Long.toString(f.getNumber()));
+                assertArrayEquals(f.getExponents(), actual.getExponents(), Long.toString(f.getNumber()));
+            }
+            
+            // Numbers beyond the limit still work
+            assertEquals(Arrays.asList(1000003L), Primes.getPrimeFactors(1000003));
+        } finally {
+            Primes.setSmallestPrimeFactorLimit(0);
+        }
+        
+        assertEquals(0, Primes.getSmallestPrimeFactorLimit());
+        assertThrows(IllegalArgumentException.class, () -> Primes.setSmallestPrimeFactorLimit(-1));
+    }
+    
+    @Test
+    public void testSaveAndLoadPrimeTable(@TempDir Path dir) throws IOException {
+        System.out.println("saveAndLoadPrimeTable");
+        
+        Path file = dir.resolve("primes.bin");
+        int[] expected = Primes.primesUpTo(1_000_000);
+        
+        Primes.savePrimeTable(file, 1_000_000);
+        assertEquals(24 + 4 * 78498, Files.size(file));
+        
+        try {
+            Primes.resetPrimeTable();
+            Primes.loadPrimeTable(file);
+            
+            assertArrayEquals(expected, Primes.primesUpTo(1_000_000));
+            assertEquals(Arrays.asList(999979L, 999983L), Primes.getPrimeFactors(999979L * 999983L));
+            
+            // Growing past the loaded table still works
+            assertEquals(664579, Primes.primesUpTo(10_000_000).length);
+        } finally {
+            Primes.resetPrimeTable();
+        }
+        
+        Path corrupt = dir.resolve("corrupt.bin");
+        Files.write(corrupt, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24});
+        assertThrows(IOException.class, () -> Primes.loadPrimeTable(corrupt));
+        
+        Path truncated = dir.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(Files.readAllBytes(file), 1000));
+        assertThrows(IOException.class, () -> Primes.loadPrimeTable(truncated));
+        
+        // Headers that don't match the primes are rejected, and leave the table alone
+        byte[] valid = Files.readAllBytes(file);
+        
+        Path largeUpperbound = dir.resolve("largeUpperbound.bin");
+        ByteBuffer bytes = ByteBuffer.wrap(valid.clone()).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putLong(8, 1_000_000L * 1_000_000 + 1);
+        Files.write(largeUpperbound, bytes.array());
+        
+        Path stale = dir.resolve("stale.bin");
+        bytes = ByteBuffer.wrap(valid.clone()).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putLong(8, 4_000_000L * 4_000_000);
+        bytes.putInt(16, 4_000_000);
+        Files.write(stale, bytes.array());
+        
+        Path unsorted = dir.resolve("unsorted.bin");
+        bytes = ByteBuffer.wrap(valid.clone()).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(valid.length - 4, 7);
+        Files.write(unsorted, bytes.array());
+        
+        Path wrongPrimes = dir.resolve("wrongPrimes.bin");
+        bytes = ByteBuffer.wrap(valid.clone()).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(24 + 4 * 3, 9);
+        Files.write(wrongPrimes, bytes.array());
+        
+        try {
+            Primes.resetPrimeTable();
+            
+            for (Path bad : Arrays.asList(largeUpperbound, stale, unsorted, wrongPrimes)) {
+                assertThrows(IOException.class, () -> Primes.loadPrimeTable(bad), bad.toString());
+            }
+            
+            assertEquals(Arrays.asList(999979L, 999983L), Primes.getPrimeFactors(999979L * 999983L));
+        } finally {
+            Primes.resetPrimeTable();
+        }
+    }
+    
+    @Test
+    public void testIsPrime() {
+        System.out.println("isPrime");
+        
+        assertFalse(Primes.isPrime(-7));
+        assertFalse(Primes.isPrime(0));
+        assertFalse(Primes.isPrime(1));
+        assertTrue(Primes.isPrime(2));
+        assertTrue(Primes.isPrime(97));
+        assertFalse(Primes.isPrime(561));
+        assertTrue(Primes.isPrime(10111));
+        assertFalse(Primes.isPrime(3215031751L));
+        assertFalse(Primes.isPrime(3825123056546413051L));
+        assertFalse(Primes.isPrime(1000000007L * 1000000009L));
+        assertTrue(Primes.isPrime(1000000007L));
+        assertTrue(Primes.isPrime(9223372036854775783L));
+        assertFalse(Primes.isPrime(Long.MAX_VALUE));
+        
+        for (int n = 0; n < 10000; n++) {
+            assertEquals(Primes.getPrimeFactors(Math.max(n, 1)).equals(Arrays.asList((long) n)), Primes.isPrime(n), Integer.toString(n));
+        }
+    }
+    
     @Test
     public void testGetDistinctPrimeFactors() {
         System.out.println("getDistinctPrimeFactors");
@@ -47,4 +256,74 @@ public class PrimesTest {
         assertEquals(Arrays.asList(10111L), Primes.getDistinctPrimeFactors(10111));
     }
     
+    @Test
+    public void testNextUpperbound() {
+        System.out.println("nextUpperbound");
+        
+        long max = (long) Integer.MAX_VALUE * Integer.MAX_VALUE;
+        
+        assertEquals(20000, Primes.nextUpperbound(10000, 10001));
+        assertEquals(50000, Primes.nextUpperbound(10000, 50000));
+        
+        // Doubling a large table must not go past the largest table that can be built
+        assertEquals(max, Primes.nextUpperbound(max / 2 + 1, max / 2 + 2));
+        assertEquals(max, Primes.nextUpperbound(max - 1, max));
+        assertEquals(max - 2, Primes.nextUpperbound(max / 2 - 1, max - 2));
+    }
+    
+    @Test
+    public void testConcurrentGrowth() throws Exception {
+        System.out.println("concurrentGrowth");
+        
+        int max = 2_000_000;
+        boolean[] composite = new boolean[max + 1];
+        
+        for (int i = 2; (long) i * i <= max; i++) {
+            if (!composite[i]) {
+                for (int j = i * i; j <= max; j += i) {
+                    composite[j] = true;
+                }
+            }
+        }
+        
+        // Start from the initial table, so that every thread keeps growing it while the others read it
+        Primes.resetPrimeTable();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> results = new ArrayList<>();
+        
+        try {
+            for (int t = 0; t < 8; t++) {
+                int offset = t;
+                results.add(executor.submit(() -> {
+                    for (int n = 150 + offset; n <= max; n = n * 3 / 2) {
+                        int[] primes = Primes.primesUpTo(n);
+                        int expected = 2;
+                        
+                        for (int p : primes) {
+                            while (composite[expected]) {
+                                expected++;
+                            }
+                            
+                            assertEquals(expected, p);
+                            expected++;
+                        }
+                        
+                        for (; expected <= n; expected++) {
+                            assertTrue(composite[expected], "missing prime " + expected + " up to " + n);
+                        }
+                    }
+                    
+                    return null;
+                }));
+            }
+            
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
 }